@@ -1,19 +1,46 @@
 package ch.epfl.cs107;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Random;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import static java.util.Objects.nonNull;
 import static javax.swing.JOptionPane.INFORMATION_MESSAGE;
 import static javax.swing.JOptionPane.showMessageDialog;
+import ch.epfl.cs107.utils.GrayPlane;
+import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.ImageBuffer;
 import ch.epfl.cs107.utils.Text;
 
 /**
@@ -32,9 +59,6 @@ public final class Helper {
     /** Project's resource folder - Follows Maven convention */
     private static final Path res_folder = Path.of("src", "main", "resources");
 
-    /** Pseudo random generator */
-    private static final Random rand = new Random();
-
     /*
      * Hidden executed code - Create the resource folder if missing
      */
@@ -58,13 +82,15 @@ public final class Helper {
 
     /**
      * Generate a random byte array of a given length
+     * @implNote uses the generator of the calling thread, so concurrent calls don't contend
+     * (see {@link ch.epfl.cs107.crypto.Pads} for large or secure pads)
      * @param length the size of the generated array
      * @return random bytes in an array of length '{@code length}'
      */
     public static byte[] generateRandomBytes(int length) {
         assert length >= 0;
         final var result = new byte[length];
-        rand.nextBytes(result);
+        ThreadLocalRandom.current().nextBytes(result);
         return result;
     }
 
@@ -116,14 +142,15 @@ public final class Helper {
      */
     public static int[][] readImage(String path) {
         assert nonNull(path);
+        if (ImageCache.INSTANCE.enabled())
+            return ImageCache.INSTANCE.get(res_folder.resolve(path), path).toArray();
         try {
             final var io = ImageIO.read(res_folder.resolve(path).toFile());
             final var width  = io.getWidth();
             final var height = io.getHeight();
             final var image = new int[height][width];
             for(var x = 0; x < height;++x)
-                for(var y = 0; y < width; ++y)
-                    image[x][y] = io.getRGB(y, x);
+                readPixels(io, x, 1, image[x], 0, width);
             return image;
         } catch (IOException e) {
             return fail("An error occurred while trying to read from : '%s'", path);
@@ -141,21 +168,1204 @@ public final class Helper {
         assert nonNull(image);
         try {
             final var buffer = new BufferedImage(image[0].length, image.length, BufferedImage.TYPE_4BYTE_ABGR);
-            for(var x = 0; x < buffer.getHeight(); ++x){
-                for(var y = 0 ; y < buffer.getWidth(); ++y){
-                    buffer.setRGB(y, x, image[x][y]);
+            for(var x = 0; x < buffer.getHeight(); ++x)
+                writePixels(buffer, x, 1, image[x], 0, buffer.getWidth());
+            ImageIO.write(buffer, "png", res_folder.resolve(path).toFile());
+        } catch (IOException e) {
+            fail("An error occurred while trying to write to : '%s'", path);
+        }
+    }
+
+    /**
+     * Read an image from the disk into a flat image.
+     * The image can be one of the standard formats (png, jpeg ...)
+     * @param path Path to the desired file
+     * @return ARGB image representation
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static ImageBuffer readImageBuffer(String path) {
+        assert nonNull(path);
+        final var file = res_folder.resolve(path);
+        return ImageCache.INSTANCE.enabled() ? ImageCache.INSTANCE.get(file, path).copy() : decodeImage(file, path);
+    }
+
+    /**
+     * Decode an image file into a flat image
+     * @param file file to decode
+     * @param path path given by the caller, for the error message
+     * @return ARGB image representation
+     */
+    private static ImageBuffer decodeImage(Path file, String path) {
+        try {
+            final var io = ImageIO.read(file.toFile());
+            final var image = new ImageBuffer(io.getWidth(), io.getHeight());
+            readPixels(io, 0, image.height(), image.data(), 0, image.stride());
+            return image;
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Write a <b>PNG</b> image to the disk.
+     * @param path Path to the desired file
+     * @param image Image in <b>ARGB</b> format to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeImage(String path, ImageBuffer image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        try {
+            final var buffer = new BufferedImage(image.width(), image.height(), BufferedImage.TYPE_4BYTE_ABGR);
+            writePixels(buffer, 0, image.height(), image.data(), image.offset(), image.stride());
+            ImageIO.write(buffer, "png", res_folder.resolve(path).toFile());
+        } catch (IOException e) {
+            fail("An error occurred while trying to write to : '%s'", path);
+        }
+    }
+
+    /**
+     * Read an image from the disk into a gray scale plane, the gray scales being the same as
+     * {@link ch.epfl.cs107.utils.Image#toGray(ImageBuffer)} of {@link #readImageBuffer(String)}.
+     * The levels of a <b>TYPE_BYTE_GRAY</b> image (8 bits gray PNG ...) are converted through a table,
+     * without going through the ARGB pixels
+     * @param path Path to the desired file
+     * @return gray scale image representation
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static GrayPlane readGrayPlane(String path) {
+        assert nonNull(path);
+        try {
+            final var io = ImageIO.read(res_folder.resolve(path).toFile());
+            final var plane = new GrayPlane(io.getWidth(), io.getHeight());
+            final var raster = io.getRaster();
+            if (io.getType() == BufferedImage.TYPE_BYTE_GRAY
+                    && raster.getSampleModel() instanceof ComponentSampleModel components
+                    && raster.getDataBuffer() instanceof DataBufferByte bytes) {
+                final var x0 = -raster.getSampleModelTranslateX();
+                final var y0 = -raster.getSampleModelTranslateY();
+                final var data = bytes.getData();
+                for (var row = 0; row < plane.height(); ++row) {
+                    final var from = bytes.getOffset() + (y0 + row) * components.getScanlineStride() + x0;
+                    final var to = plane.rowStart(row);
+                    for (var col = 0; col < plane.width(); ++col)
+                        plane.data()[to + col] = GrayLevels.GRAY[data[from + col] & 0xFF];
+                }
+            } else {
+                //↓ Through the ARGB pixels, a stripe at a time
+                final var stripeHeight = stripeHeight(plane.width());
+                final var stripe = new ImageBuffer(plane.width(), Math.min(stripeHeight, plane.height()));
+                for (var y = 0; y < plane.height(); y += stripeHeight) {
+                    final var rows = Math.min(stripeHeight, plane.height() - y);
+                    readPixels(io, y, rows, stripe.data(), 0, stripe.stride());
+                    Image.toGray(stripe.region(0, 0, plane.width(), rows), plane.region(y, 0, plane.width(), rows));
                 }
             }
-            ImageIO.write(buffer, "png", res_folder.resolve(path).toFile());
+            return plane;
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Write a gray scale plane to the disk, as a <b>PNG</b> of gray <b>ARGB</b> pixels
+     * ({@link ch.epfl.cs107.utils.Image#fromGray(GrayPlane)}), so the gray scales read back by
+     * {@link #readImage(String)} and {@link #readGrayPlane(String)} are the written ones
+     * @implNote an 8 bits gray PNG would store linear gray levels, read back converted to sRGB by {@link #readImage(String)}
+     * @param path Path to the desired file
+     * @param image Gray scale image to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeImage(String path, GrayPlane image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        writeImage(path, Image.fromGray(image));
+    }
+
+    // ============================================================================================
+    // ================================== DECODED IMAGE CACHE =====================================
+    // ============================================================================================
+
+    /**
+     * Statistics of the decoded image cache
+     * @param hits number of reads served from the cache
+     * @param misses number of reads decoding the file
+     * @param evictions number of images removed to make room for others
+     * @param images number of images in the cache
+     * @param pixels number of pixels in the cache
+     */
+    public record ImageCacheStats(long hits, long misses, long evictions, int images, long pixels) {}
+
+    /**
+     * Set the maximum number of pixels kept by the decoded image cache of {@link #readImage(String)} and
+     * {@link #readImageBuffer(String)}, evicting the least recently read images if needed.
+     * <p>
+     * The cache is disabled by default (capacity 0), and can also be enabled with the
+     * <code>ch.epfl.cs107.image.cache</code> system property. An image is decoded again when the last modified
+     * time or the size of its file changes, and the readers always get their own copy of the pixels.
+     * @param pixels maximum number of pixels, 0 to disable the cache (emptying it)
+     */
+    public static void setImageCacheCapacity(long pixels) {
+        assert (pixels >= 0);
+        ImageCache.INSTANCE.setCapacity(pixels);
+    }
+
+    /**
+     * @return the statistics of the decoded image cache since it was last cleared
+     */
+    public static ImageCacheStats imageCacheStats() {
+        return ImageCache.INSTANCE.stats();
+    }
+
+    /**
+     * Remove all the images from the decoded image cache and reset its statistics
+     */
+    public static void clearImageCache() {
+        ImageCache.INSTANCE.clear();
+    }
+
+    /** Decoded images, in least recently read first order, weighted by their number of pixels */
+    private static final class ImageCache {
+
+        private static final ImageCache INSTANCE = new ImageCache(Long.getLong("ch.epfl.cs107.image.cache", 0));
+
+        /** Decoded file, valid as long as the file has the same last modified time and size */
+        private record Entry(long modified, long size, ImageBuffer image) {}
+
+        private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private volatile long capacity;
+        private long pixels;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private ImageCache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private boolean enabled() {
+            return capacity > 0;
+        }
+
+        /**
+         * @implNote the returned image is shared with the cache, and must be copied before being handed out
+         */
+        private ImageBuffer get(Path file, String path) {
+            final var key = file.toAbsolutePath().normalize();
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return fail("An error occurred while trying to read from : '%s'", path);
+            }
+            final long modified = attributes.lastModifiedTime().toMillis();
+            synchronized (this) {
+                final var entry = entries.get(key);
+                if (entry != null && entry.modified() == modified && entry.size() == attributes.size()) {
+                    ++hits;
+                    return entry.image();
+                }
+                ++misses;
+            }
+            //↓ Decode outside of the lock, the other images stay available meanwhile
+            final var image = decodeImage(key, path);
+            put(key, new Entry(modified, attributes.size(), image));
+            return image;
+        }
+
+        private synchronized void put(Path key, Entry entry) {
+            remove(key);
+            final long weight = (long) entry.image().width() * entry.image().height();
+            if (weight > capacity)
+                return;
+            entries.put(key, entry);
+            pixels += weight;
+            evict();
+        }
+
+        private synchronized void setCapacity(long capacity) {
+            this.capacity = capacity;
+            evict();
+        }
+
+        private synchronized ImageCacheStats stats() {
+            return new ImageCacheStats(hits, misses, evictions, entries.size(), pixels);
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            pixels = hits = misses = evictions = 0;
+        }
+
+        private void remove(Path key) {
+            final var old = entries.remove(key);
+            if (old != null)
+                pixels -= (long) old.image().width() * old.image().height();
+        }
+
+        /** Remove the least recently read images until the cache fits its capacity */
+        private void evict() {
+            //↓ Through the iterator: a get would move the entry to the end
+            final var eldest = entries.values().iterator();
+            while (pixels > capacity && eldest.hasNext()) {
+                final var image = eldest.next().image();
+                pixels -= (long) image.width() * image.height();
+                eldest.remove();
+                ++evictions;
+            }
+        }
+    }
+
+    // ============================================================================================
+    // ================================= STRIPED IMAGE METHODS ====================================
+    // ============================================================================================
+
+    /**
+     * Number of pixels of a stripe, so that a stripe takes a few dozen MB whatever the size of the image.
+     * Can be tuned with the <code>ch.epfl.cs107.image.stripe</code> system property.
+     */
+    public static final int STRIPE_PIXELS = Integer.getInteger("ch.epfl.cs107.image.stripe", 1 << 22);
+
+    /**
+     * Number of rows of the stripes of an image: a multiple of 8 (so a stripe carries a whole number of bytes
+     * of a hidden message, whatever the number of bits per pixel), of about {@link #STRIPE_PIXELS} pixels
+     * @param width number of columns of the image
+     * @return the number of rows of a stripe
+     */
+    public static int stripeHeight(int width) {
+        assert width > 0;
+        return Math.max(Byte.SIZE, STRIPE_PIXELS / width / Byte.SIZE * Byte.SIZE);
+    }
+
+    /**
+     * Source of the stripes of an image, computed when needed
+     */
+    @FunctionalInterface
+    public interface StripeSource {
+        /**
+         * @param y first row of the stripe
+         * @param rows number of rows of the stripe
+         * @return the <b>ARGB</b> pixels of the stripe, <code>rows</code> rows of the width of the image
+         */
+        ImageBuffer stripe(int y, int rows);
+    }
+
+    /**
+     * Image read band by band: only the rows of the requested stripe are kept in memory.
+     * <p>
+     * The non interlaced 8 bits <b>PNG</b> (gray, RGB, palette or RGBA: all the images written by this class)
+     * are inflated row after row by a single decoder, each stripe continuing where the previous one stopped,
+     * so the stripes should be read in order: reading rows above the last read ones starts over from the first row.
+     * The other images go through {@link javax.imageio.ImageReadParam#setSourceRegion(Rectangle)}.
+     * @implNote the source regions of formats without random access to the rows (like interlaced png) go through
+     * the rows above the stripe (without storing them)
+     */
+    public static final class ImageStripes implements AutoCloseable {
+
+        private final Path file;
+        private final ImageInputStream input;
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+        /** Sequential decoder, or null when the image goes through the reader */
+        private PngRows rows;
+
+        private ImageStripes(Path file, PngRows rows) {
+            this.file = file;
+            this.input = null;
+            this.reader = null;
+            this.rows = rows;
+            this.width = rows.width;
+            this.height = rows.height;
+        }
+
+        private ImageStripes(ImageInputStream input, ImageReader reader) throws IOException {
+            this.file = null;
+            this.input = input;
+            this.reader = reader;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+        }
+
+        /**
+         * @return the number of columns of the image
+         */
+        public int width() {
+            return width;
+        }
+
+        /**
+         * @return the number of rows of the image
+         */
+        public int height() {
+            return height;
+        }
+
+        /**
+         * Decode a band of rows
+         * @param y first row to decode
+         * @param rows number of rows to decode
+         * @return the <b>ARGB</b> pixels of the rows
+         */
+        public ImageBuffer read(int y, int rows) {
+            assert 0 <= y && 0 < rows && y + rows <= height;
+            final var stripe = new ImageBuffer(width, rows);
+            try {
+                if (this.rows != null) {
+                    if (y < this.rows.next) {
+                        this.rows.close();
+                        this.rows = PngRows.open(file);
+                    }
+                    this.rows.skip(y - this.rows.next);
+                    this.rows.read(rows, stripe.data(), 0, stripe.stride());
+                } else {
+                    final var param = reader.getDefaultReadParam();
+                    param.setSourceRegion(new Rectangle(0, y, width, rows));
+                    readPixels(reader.read(0, param), 0, rows, stripe.data(), 0, stripe.stride());
+                }
+                return stripe;
+            } catch (IOException | DataFormatException e) {
+                return fail("An error occurred while trying to read rows %d to %d", y, y + rows);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (rows != null) {
+                    rows.close();
+                } else {
+                    reader.dispose();
+                    input.close();
+                }
+            } catch (IOException e) {
+                fail("An error occurred while trying to close an image");
+            }
+        }
+    }
+
+    /**
+     * Open an image to read it band by band, without decoding it
+     * @param path Path to the desired file
+     * @return the stripes of the image, to be closed after use
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static ImageStripes openImageStripes(String path) {
+        assert nonNull(path);
+        final var file = res_folder.resolve(path);
+        try {
+            final var rows = PngRows.open(file);
+            if (rows != null)
+                return new ImageStripes(file, rows);
+            final var input = ImageIO.createImageInputStream(file.toFile());
+            final var readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext())
+                return fail("No decoder can read : '%s'", path);
+            final var reader = readers.next();
+            reader.setInput(input, false, true);
+            return new ImageStripes(input, reader);
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Sequential decoder of the rows of a non interlaced 8 bits <b>PNG</b>, giving the same pixels as the
+     * <code>getRGB</code> of the image decoded by {@link ImageIO}
+     * @implNote the CRC of the chunks are not checked, as by {@link ImageIO}
+     */
+    private static final class PngRows implements AutoCloseable {
+
+        private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+        private static final int IHDR = 0x49484452;
+        private static final int PLTE = 0x504C5445;
+        private static final int TRNS = 0x74524E53;
+        private static final int IDAT = 0x49444154;
+
+        private static final int GRAY = 0;
+        private static final int RGB = 2;
+        private static final int PALETTE = 3;
+        private static final int RGBA = 6;
+
+        private final DataInputStream input;
+        private final Inflater inflater = new Inflater();
+        private final int width;
+        private final int height;
+        private final int colorType;
+        /** Bytes per pixel */
+        private final int channels;
+        /** ARGB of every index of a palette image */
+        private final int[] palette;
+        /** Compressed bytes given to the inflater, and the bytes of the current IDAT chunk not read yet */
+        private final byte[] compressed = new byte[1 << 16];
+        private int idatLeft;
+        /** Filter type and bytes of the previous and current rows */
+        private byte[] previous;
+        private byte[] current;
+        /** Next row to decode */
+        private int next;
+
+        private PngRows(DataInputStream input, int width, int height, int colorType, int[] palette, int idatLeft) {
+            this.input = input;
+            this.width = width;
+            this.height = height;
+            this.colorType = colorType;
+            this.channels = switch (colorType) {
+                case RGB -> 3;
+                case RGBA -> 4;
+                default -> 1;
+            };
+            this.palette = palette;
+            this.idatLeft = idatLeft;
+            this.previous = new byte[1 + width * channels];
+            this.current = new byte[1 + width * channels];
+        }
+
+        /**
+         * Read the chunks preceding the image data
+         * @param file png file
+         * @return the decoder of the rows, or null if the image isn't a png this decoder supports
+         */
+        private static PngRows open(Path file) throws IOException {
+            final var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            try {
+                if (input.readLong() != SIGNATURE || input.readInt() != 13 || input.readInt() != IHDR) {
+                    input.close();
+                    return null;
+                }
+                final var width = input.readInt();
+                final var height = input.readInt();
+                final var depth = input.readUnsignedByte();
+                final var colorType = input.readUnsignedByte();
+                final var compression = input.readUnsignedByte();
+                final var filter = input.readUnsignedByte();
+                final var interlace = input.readUnsignedByte();
+                input.readInt();
+                var supported = depth == Byte.SIZE && compression == 0 && filter == 0 && interlace == 0
+                        && (colorType == GRAY || colorType == RGB || colorType == PALETTE || colorType == RGBA)
+                        && width > 0 && height > 0 && width < Integer.MAX_VALUE / 4;
+                int[] palette = null;
+                while (supported) {
+                    final var length = input.readInt();
+                    final var type = input.readInt();
+                    if (type == IDAT && (colorType != PALETTE || palette != null))
+                        return new PngRows(input, width, height, colorType, palette, length);
+                    if (type == IDAT)
+                        break;
+                    if (type == PLTE && colorType == PALETTE) {
+                        //↓ Missing entries repeat the last one, as ImageIO does
+                        palette = new int[1 << Byte.SIZE];
+                        for (var i = 0; i < length / 3; ++i)
+                            palette[i] = 0xFF000000 | input.readUnsignedByte() << 16 | input.readUnsignedByte() << 8 | input.readUnsignedByte();
+                        Arrays.fill(palette, Math.max(1, length / 3), palette.length, palette[Math.max(0, length / 3 - 1)]);
+                        input.skipNBytes(length % 3);
+                    } else if (type == TRNS && colorType == PALETTE && palette != null) {
+                        for (var i = 0; i < length; ++i) {
+                            final var alpha = input.readUnsignedByte();
+                            if (i < palette.length)
+                                palette[i] = alpha << 24 | palette[i] & 0xFFFFFF;
+                        }
+                    } else if (type == TRNS) {
+                        //↓ ImageIO adds an alpha channel for the transparent color of gray and RGB images
+                        supported = false;
+                    } else {
+                        input.skipNBytes(length);
+                    }
+                    input.readInt();
+                }
+                input.close();
+                return null;
+            } catch (IOException e) {
+                input.close();
+                return null;
+            }
+        }
+
+        /**
+         * Decode and drop rows
+         * @param rows number of rows to skip
+         */
+        private void skip(int rows) throws IOException, DataFormatException {
+            for (var i = 0; i < rows; ++i)
+                nextRow();
+        }
+
+        /**
+         * Decode the next rows into ARGB pixels
+         * @param rows number of rows to decode
+         * @param dst pixels receiving the rows
+         * @param off index of the first pixel of the first row in <code>dst</code>
+         * @param stride distance between two rows in <code>dst</code>
+         */
+        private void read(int rows, int[] dst, int off, int stride) throws IOException, DataFormatException {
+            for (var i = 0; i < rows; ++i) {
+                nextRow();
+                final var row = off + i * stride;
+                for (int j = 0, k = 1; j < width; ++j, k += channels)
+                    dst[row + j] = switch (colorType) {
+                        case GRAY -> GrayLevels.ARGB[current[k] & 0xFF];
+                        case PALETTE -> palette[current[k] & 0xFF];
+                        case RGB -> 0xFF000000 | (current[k] & 0xFF) << 16 | (current[k + 1] & 0xFF) << 8 | current[k + 2] & 0xFF;
+                        default -> current[k + 3] << 24 | (current[k] & 0xFF) << 16 | (current[k + 1] & 0xFF) << 8 | current[k + 2] & 0xFF;
+                    };
+            }
+        }
+
+        /**
+         * Inflate and unfilter the next row into <code>current</code>
+         */
+        private void nextRow() throws IOException, DataFormatException {
+            assert next < height;
+            final var swap = previous;
+            previous = current;
+            current = swap;
+            if (next == 0)
+                Arrays.fill(previous, (byte) 0);
+            for (var done = 0; done < current.length; ) {
+                final var n = inflater.inflate(current, done, current.length - done);
+                done += n;
+                if (n == 0) {
+                    if (!inflater.needsInput())
+                        throw new DataFormatException("Truncated image data");
+                    feed();
+                }
+            }
+            //↓ Filters of the PNG specification, on the bytes (not the pixels) of the row, the first pixel having no left
+            switch (current[0]) {
+                case 0 -> {}
+                case 1 -> {
+                    for (var i = 1 + channels; i < current.length; ++i)
+                        current[i] += current[i - channels];
+                }
+                case 2 -> {
+                    for (var i = 1; i < current.length; ++i)
+                        current[i] += previous[i];
+                }
+                case 3 -> {
+                    for (var i = 1; i < current.length; ++i)
+                        current[i] += ((i > channels ? current[i - channels] & 0xFF : 0) + (previous[i] & 0xFF)) >>> 1;
+                }
+                case 4 -> {
+                    for (var i = 1; i < current.length; ++i)
+                        current[i] += i > channels
+                                ? paeth(current[i - channels] & 0xFF, previous[i] & 0xFF, previous[i - channels] & 0xFF)
+                                : previous[i];
+                }
+                default -> throw new DataFormatException("Unknown filter " + current[0]);
+            }
+            ++next;
+        }
+
+        private static int paeth(int left, int up, int upLeft) {
+            final var p = left + up - upLeft;
+            final var pLeft = Math.abs(p - left);
+            final var pUp = Math.abs(p - up);
+            final var pUpLeft = Math.abs(p - upLeft);
+            if (pLeft <= pUp && pLeft <= pUpLeft)
+                return left;
+            return pUp <= pUpLeft ? up : upLeft;
+        }
+
+        /**
+         * Give the inflater the next bytes of image data, across the IDAT chunks
+         */
+        private void feed() throws IOException, DataFormatException {
+            while (idatLeft == 0) {
+                input.readInt();
+                idatLeft = input.readInt();
+                if (input.readInt() != IDAT)
+                    throw new DataFormatException("Truncated image data");
+            }
+            final var n = input.read(compressed, 0, Math.min(compressed.length, idatLeft));
+            if (n < 0)
+                throw new EOFException();
+            idatLeft -= n;
+            inflater.setInput(compressed, 0, n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            input.close();
+        }
+    }
+
+    /**
+     * Write a <b>PNG</b> image to the disk, computing its stripes as the encoder goes, so that only one
+     * stripe is in memory at a time
+     * @param path Path to the desired file
+     * @param width number of columns of the image
+     * @param height number of rows of the image
+     * @param source source of the stripes, asked in order for {@link #stripeHeight(int)} rows at a time
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeImageStripes(String path, int width, int height, StripeSource source) {
+        assert nonNull(path);
+        assert nonNull(source);
+        assert width > 0 && height > 0;
+        try {
+            if (!ImageIO.write(new StripedImage(width, height, source), "png", res_folder.resolve(path).toFile()))
+                fail("No encoder can write : '%s'", path);
+        } catch (IOException e) {
+            fail("An error occurred while trying to write to : '%s'", path);
+        }
+    }
+
+    /**
+     * Image whose rows are computed when the encoder asks for them, one stripe being kept at a time
+     */
+    private static final class StripedImage implements RenderedImage {
+
+        /** Same layout as the images of {@link #writeImage(String, int[][])} */
+        private static final BufferedImage LAYOUT = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
+
+        private final int width;
+        private final int height;
+        private final int stripeHeight;
+        private final StripeSource source;
+        /** Current stripe, and its first row */
+        private BufferedImage stripe;
+        private int stripeY = -1;
+
+        private StripedImage(int width, int height, StripeSource source) {
+            this.width = width;
+            this.height = height;
+            this.stripeHeight = stripeHeight(width);
+            this.source = source;
+        }
+
+        /**
+         * @return the stripe containing the given row
+         */
+        private BufferedImage stripeOf(int y) {
+            final var first = y / stripeHeight * stripeHeight;
+            if (first != stripeY) {
+                final var rows = Math.min(stripeHeight, height - first);
+                final var pixels = source.stripe(first, rows);
+                assert pixels.width() == width && pixels.height() == rows;
+                if (stripe == null || stripe.getHeight() != rows)
+                    stripe = new BufferedImage(width, rows, BufferedImage.TYPE_4BYTE_ABGR);
+                writePixels(stripe, 0, rows, pixels.data(), pixels.offset(), pixels.stride());
+                stripeY = first;
+            }
+            return stripe;
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            //↓ The encoders ask for the rows one at a time: they are shared with the stripe, without copy
+            if (0 <= rect.x && rect.x + rect.width <= width && 0 <= rect.y && rect.y + rect.height <= height) {
+                final var band = stripeOf(rect.y);
+                if (rect.y + rect.height <= stripeY + band.getHeight())
+                    return band.getRaster().createChild(rect.x, rect.y - stripeY, rect.width, rect.height,
+                                                        rect.x, rect.y, null);
+            }
+            final var raster = LAYOUT.getRaster().createCompatibleWritableRaster(rect.x, rect.y, rect.width, rect.height);
+            copyData(raster);
+            return raster;
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null)
+                raster = LAYOUT.getRaster().createCompatibleWritableRaster(width, height);
+            final var bounds = raster.getBounds().intersection(new Rectangle(width, height));
+            for (var y = bounds.y; y < bounds.y + bounds.height; ) {
+                final var band = stripeOf(y);
+                final var rows = Math.min(stripeY + band.getHeight(), bounds.y + bounds.height) - y;
+                final var child = band.getRaster().createChild(bounds.x, y - stripeY, bounds.width, rows,
+                                                               bounds.x, y, null);
+                raster.setRect(child);
+                y += rows;
+            }
+            return raster;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(width, height));
+        }
+
+        /** The tiles are the stripes, over the whole width */
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            assert tileX == 0 && 0 <= tileY && tileY < getNumYTiles();
+            final var y = tileY * stripeHeight;
+            return getData(new Rectangle(0, y, width, Math.min(stripeHeight, height - y)));
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return java.awt.Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return LAYOUT.getColorModel();
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return LAYOUT.getSampleModel().createCompatibleSampleModel(width, height);
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripeHeight - 1) / stripeHeight;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripeHeight;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+
+    // ============================================================================================
+    // =================================== RAW IMAGE FILES ========================================
+    // ============================================================================================
+
+    /*
+     * Raw image file: a 16 bytes header (the magic number 'CSRW', then the width, the height and the code of
+     * the RawFormat, as little endian ints) followed by the pixels, row after row, as little endian values of
+     * RawFormat#bytes bytes. Nothing is compressed or converted: the files are read and written through memory
+     * mapped stripes of the file, so loading an image is a copy from the page cache (shared by the processes
+     * reading the same file).
+     */
+
+    /** First bytes of a raw image file, 'CSRW' */
+    private static final int RAW_MAGIC = 'C' | 'S' << 8 | 'R' << 16 | 'W' << 24;
+
+    private static final int RAW_HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Format of the pixels of a raw image file
+     */
+    public enum RawFormat {
+        /** <b>ARGB</b> pixels, 4 bytes each ({@link ImageBuffer}) */
+        ARGB(0, Integer.BYTES),
+        /** Gray scales, 1 byte each ({@link GrayPlane}) */
+        GRAY(1, Byte.BYTES);
+
+        /** Code of the format in the header of the files, never to be changed nor reused */
+        private final int code;
+        private final int bytes;
+
+        RawFormat(int code, int bytes) {
+            this.code = code;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the format of the given code, null if none
+         */
+        private static RawFormat of(int code) {
+            for (final var format : values())
+                if (format.code == code)
+                    return format;
+            return null;
+        }
+
+        /**
+         * @return the number of bytes of a pixel
+         */
+        public int bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Header of a raw image file
+     * @param width number of columns
+     * @param height number of rows
+     * @param format format of the pixels
+     */
+    public record RawHeader(int width, int height, RawFormat format) {}
+
+    /**
+     * Read the header of a raw image file
+     * @param path Path to the desired file
+     * @return the size and the pixel format of the image
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static RawHeader readRawHeader(String path) {
+        assert nonNull(path);
+        try (final var channel = FileChannel.open(res_folder.resolve(path), StandardOpenOption.READ)) {
+            return readRawHeader(channel, path);
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Read a raw image file of <b>ARGB</b> pixels
+     * @param path Path to the desired file
+     * @return ARGB image representation
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static ImageBuffer readRawImage(String path) {
+        assert nonNull(path);
+        try (final var channel = FileChannel.open(res_folder.resolve(path), StandardOpenOption.READ)) {
+            final var header = readRawHeader(channel, path);
+            if (header.format() != RawFormat.ARGB)
+                return fail("The raw image '%s' is not in ARGB format but %s", path, header.format());
+            checkLoadable(header, path);
+            final var image = new ImageBuffer(header.width(), header.height());
+            forEachRawStripe(channel, header, FileChannel.MapMode.READ_ONLY, (y, rows, pixels) ->
+                    pixels.asIntBuffer().get(image.data(), image.rowStart(y), rows * image.width()));
+            return image;
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Read a raw image file of gray scales
+     * @param path Path to the desired file
+     * @return gray scale image representation
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static GrayPlane readRawGrayPlane(String path) {
+        assert nonNull(path);
+        try (final var channel = FileChannel.open(res_folder.resolve(path), StandardOpenOption.READ)) {
+            final var header = readRawHeader(channel, path);
+            if (header.format() != RawFormat.GRAY)
+                return fail("The raw image '%s' is not in GRAY format but %s", path, header.format());
+            checkLoadable(header, path);
+            final var plane = new GrayPlane(header.width(), header.height());
+            forEachRawStripe(channel, header, FileChannel.MapMode.READ_ONLY, (y, rows, pixels) ->
+                    pixels.get(plane.data(), plane.rowStart(y), rows * plane.width()));
+            return plane;
+        } catch (IOException e) {
+            return fail("An error occurred while trying to read from : '%s'", path);
+        }
+    }
+
+    /**
+     * Write a raw image file of <b>ARGB</b> pixels
+     * @param path Path to the desired file
+     * @param image Image in <b>ARGB</b> format to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeRawImage(String path, ImageBuffer image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        writeRaw(path, new RawHeader(image.width(), image.height(), RawFormat.ARGB), (y, rows, pixels) -> {
+            final var ints = pixels.asIntBuffer();
+            for (var row = y; row < y + rows; ++row)
+                ints.put(image.data(), image.rowStart(row), image.width());
+        });
+    }
+
+    /**
+     * Write a raw image file of gray scales
+     * @param path Path to the desired file
+     * @param image Gray scale image to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeRawImage(String path, GrayPlane image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        writeRaw(path, new RawHeader(image.width(), image.height(), RawFormat.GRAY), (y, rows, pixels) -> {
+            for (var row = y; row < y + rows; ++row)
+                pixels.put(image.data(), image.rowStart(row), image.width());
+        });
+    }
+
+    /**
+     * Convert an image file (png, jpeg ...) into a raw image file of <b>ARGB</b> pixels
+     * @param imagePath Path to the image to convert
+     * @param rawPath Path to the raw image file to write
+     * @apiNote The provided paths will be considered relative to the resource folder if not absolute
+     */
+    public static void convertToRaw(String imagePath, String rawPath) {
+        writeRawImage(rawPath, readImageBuffer(imagePath));
+    }
+
+    /**
+     * Convert a raw image file into a <b>PNG</b> image (gray ARGB pixels for the gray scales, see {@link #writeImage(String, GrayPlane)})
+     * @param rawPath Path to the raw image file to convert
+     * @param imagePath Path to the <b>PNG</b> file to write
+     * @apiNote The provided paths will be considered relative to the resource folder if not absolute
+     */
+    public static void convertToPng(String rawPath, String imagePath) {
+        switch (readRawHeader(rawPath).format()) {
+            case ARGB -> writeImage(imagePath, readRawImage(rawPath));
+            case GRAY -> writeImage(imagePath, readRawGrayPlane(rawPath));
+        }
+    }
+
+    /**
+     * Processing of the mapped pixels of consecutive rows of a raw image file
+     */
+    @FunctionalInterface
+    private interface RawStripe {
+        /**
+         * @param y first row of the stripe
+         * @param rows number of rows of the stripe
+         * @param pixels little endian view of the pixels of the rows
+         */
+        void process(int y, int rows, ByteBuffer pixels);
+    }
+
+    private static RawHeader readRawHeader(FileChannel channel, String path) throws IOException {
+        final var header = ByteBuffer.allocate(RAW_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining())
+            if (channel.read(header, header.position()) < 0)
+                break;
+        header.flip();
+        if (header.remaining() < RAW_HEADER_BYTES || header.getInt() != RAW_MAGIC)
+            return fail("'%s' is not a raw image file", path);
+        final var width = header.getInt();
+        final var height = header.getInt();
+        final var format = RawFormat.of(header.getInt());
+        if (width < 0 || height < 0 || format == null)
+            return fail("The raw image file '%s' is corrupted", path);
+        final var result = new RawHeader(width, height, format);
+        if (channel.size() < RAW_HEADER_BYTES + (long) width * height * result.format().bytes())
+            return fail("The raw image file '%s' is truncated", path);
+        return result;
+    }
+
+    /**
+     * Fail if the pixels of a raw image file don't fit in an array
+     */
+    private static void checkLoadable(RawHeader header, String path) {
+        if ((long) header.width() * header.height() > Integer.MAX_VALUE)
+            fail("The raw image '%s' has too many pixels to be loaded (%d x %d)", path, header.width(), header.height());
+    }
+
+    /**
+     * Map the pixels of a raw image file a stripe at a time (a mapping is limited to 2GB)
+     */
+    private static void forEachRawStripe(FileChannel channel, RawHeader header, FileChannel.MapMode mode,
+                                         RawStripe stripe) throws IOException {
+        if (header.width() == 0)
+            return;
+        final long rowBytes = (long) header.width() * header.format().bytes();
+        final var stripeHeight = stripeHeight(header.width());
+        for (var y = 0; y < header.height(); y += stripeHeight) {
+            final var rows = Math.min(stripeHeight, header.height() - y);
+            final var pixels = channel.map(mode, RAW_HEADER_BYTES + y * rowBytes, rows * rowBytes);
+            stripe.process(y, rows, pixels.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    private static void writeRaw(String path, RawHeader header, RawStripe stripe) {
+        try (final var channel = FileChannel.open(res_folder.resolve(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var bytes = ByteBuffer.allocate(RAW_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(RAW_MAGIC)
+                    .putInt(header.width())
+                    .putInt(header.height())
+                    .putInt(header.format().code)
+                    .flip();
+            while (bytes.hasRemaining())
+                channel.write(bytes, bytes.position());
+            forEachRawStripe(channel, header, FileChannel.MapMode.READ_WRITE, stripe);
         } catch (IOException e) {
             fail("An error occurred while trying to write to : '%s'", path);
         }
     }
 
+    // ============================================================================================
+    // ===================================== RASTER ACCESS ========================================
+    // ============================================================================================
+
+    /*
+     * getRGB/setRGB go through the color model for every pixel. For the usual types, the samples are
+     * read and written straight in the data buffer of the raster instead, with the same values:
+     * the components of TYPE_INT_ARGB, TYPE_INT_RGB, TYPE_4BYTE_ABGR and TYPE_3BYTE_BGR are already sRGB,
+     * and the (linear) gray levels of TYPE_BYTE_GRAY go through a table built with getRGB itself.
+     */
+
+    /** ARGB value returned by getRGB for every gray level of a TYPE_BYTE_GRAY image, and its gray scale */
+    private static final class GrayLevels {
+        private static final int[] ARGB = argbOfGrayLevels();
+        private static final byte[] GRAY = grayOfGrayLevels();
+
+        private static byte[] grayOfGrayLevels() {
+            final var gray = new byte[ARGB.length];
+            for (var level = 0; level < ARGB.length; ++level)
+                gray[level] = (byte) Image.gray(ARGB[level]);
+            return gray;
+        }
+
+        private static int[] argbOfGrayLevels() {
+            final var levels = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+            for (var level = 0; level < 256; ++level)
+                levels.getRaster().setSample(level, 0, 0, level);
+            return levels.getRGB(0, 0, 256, 1, null, 0, 256);
+        }
+    }
+
+    /**
+     * Read the <b>ARGB</b> pixels of consecutive rows of an image, as {@link BufferedImage#getRGB(int, int)} would
+     * @param io image to read from
+     * @param y first row to read
+     * @param rows number of rows to read
+     * @param dst array receiving the pixels
+     * @param off index in <code>dst</code> of the first pixel
+     * @param stride distance in <code>dst</code> between the first pixels of two consecutive rows
+     */
+    private static void readPixels(BufferedImage io, int y, int rows, int[] dst, int off, int stride) {
+        final var width = io.getWidth();
+        final var raster = io.getRaster();
+        final var model = raster.getSampleModel();
+        final var buffer = raster.getDataBuffer();
+        final var x0 = -raster.getSampleModelTranslateX();
+        final var y0 = -raster.getSampleModelTranslateY();
+        final var type = io.getType();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+                && model instanceof SinglePixelPackedSampleModel packed && buffer instanceof DataBufferInt ints) {
+            final var data = ints.getData();
+            final var opaque = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            for (var row = 0; row < rows; ++row) {
+                final var from = ints.getOffset() + packed.getOffset(x0, y0 + y + row);
+                final var to = off + row * stride;
+                if (opaque == 0)
+                    System.arraycopy(data, from, dst, to, width);
+                else for (var col = 0; col < width; ++col)
+                    dst[to + col] = data[from + col] | opaque;
+            }
+        } else if ((type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_3BYTE_BGR
+                    || type == BufferedImage.TYPE_BYTE_GRAY)
+                && model instanceof ComponentSampleModel components && buffer instanceof DataBufferByte bytes) {
+            final var data = bytes.getData();
+            final var bands = components.getBandOffsets();
+            final var step = components.getPixelStride();
+            for (var row = 0; row < rows; ++row) {
+                var from = bytes.getOffset() + (y0 + y + row) * components.getScanlineStride() + x0 * step;
+                final var to = off + row * stride;
+                for (var col = 0; col < width; ++col, from += step)
+                    dst[to + col] = switch (type) {
+                        //↓ Bands in the order of the color model: red, green, blue (and alpha)
+                        case BufferedImage.TYPE_4BYTE_ABGR -> (data[from + bands[3]] & 0xFF) << 24
+                                                            | (data[from + bands[0]] & 0xFF) << 16
+                                                            | (data[from + bands[1]] & 0xFF) << 8
+                                                            | (data[from + bands[2]] & 0xFF);
+                        case BufferedImage.TYPE_3BYTE_BGR -> 0xFF000000
+                                                            | (data[from + bands[0]] & 0xFF) << 16
+                                                            | (data[from + bands[1]] & 0xFF) << 8
+                                                            | (data[from + bands[2]] & 0xFF);
+                        default -> GrayLevels.ARGB[data[from + bands[0]] & 0xFF];
+                    };
+            }
+        } else {
+            // Other types (indexed, 16 bits, custom color spaces ...): let the color model convert the pixels
+            io.getRGB(0, y, width, rows, dst, off, stride);
+        }
+    }
+
+    /**
+     * Write <b>ARGB</b> pixels to consecutive rows of a TYPE_4BYTE_ABGR image, as {@link BufferedImage#setRGB(int, int, int)} would
+     * @param io image to write to
+     * @param y first row to write
+     * @param rows number of rows to write
+     * @param src array containing the pixels
+     * @param off index in <code>src</code> of the first pixel
+     * @param stride distance in <code>src</code> between the first pixels of two consecutive rows
+     */
+    private static void writePixels(BufferedImage io, int y, int rows, int[] src, int off, int stride) {
+        final var width = io.getWidth();
+        final var raster = io.getRaster();
+        if (io.getType() == BufferedImage.TYPE_4BYTE_ABGR
+                && raster.getSampleModel() instanceof ComponentSampleModel components
+                && raster.getDataBuffer() instanceof DataBufferByte bytes) {
+            final var data = bytes.getData();
+            final var bands = components.getBandOffsets();
+            final var step = components.getPixelStride();
+            final var x0 = -raster.getSampleModelTranslateX();
+            final var y0 = -raster.getSampleModelTranslateY();
+            for (var row = 0; row < rows; ++row) {
+                var to = bytes.getOffset() + (y0 + y + row) * components.getScanlineStride() + x0 * step;
+                final var from = off + row * stride;
+                for (var col = 0; col < width; ++col, to += step) {
+                    final var pixel = src[from + col];
+                    data[to + bands[0]] = (byte) (pixel >>> 16);
+                    data[to + bands[1]] = (byte) (pixel >>> 8);
+                    data[to + bands[2]] = (byte) pixel;
+                    data[to + bands[3]] = (byte) (pixel >>> 24);
+                }
+            }
+        } else {
+            io.setRGB(0, y, width, rows, src, off, stride);
+        }
+    }
+
     // ============================================================================================
     // =================================== GRAPHIC WINDOWS ========================================
     // ============================================================================================
 
+    /**
+     * Open a graphical window to display an image
+     * @param image Image to display in the <b>ARGB</b> format
+     * @param title The title of the window
+     */
+    public static void show(ImageBuffer image, String title) {
+        assert nonNull(image);
+        show(image.toArray(), title);
+    }
+
     /**
      * Open a graphical window to display an image
      * @param image Image to display in the <b>ARGB</b> format
@@ -167,8 +1377,7 @@ public final class Helper {
         final var height = image.length;
         final var jimage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
         for (var row = 0; row < height; ++row)
-            for (var col = 0; col < width; ++col)
-                jimage.setRGB(col, row, image[row][col]);
+            writePixels(jimage, row, 1, image[row], 0, width);
 
         // Instantiate a swing panel
         final var panel = new JPanel() {
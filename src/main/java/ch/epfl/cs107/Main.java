@@ -1,15 +1,34 @@
 package ch.epfl.cs107;
 
+import ch.epfl.cs107.crypto.CipherChannels;
+import ch.epfl.cs107.crypto.CipherPipeline;
+import ch.epfl.cs107.crypto.Cryptanalysis;
 import ch.epfl.cs107.crypto.Decrypt;
 import ch.epfl.cs107.crypto.Encrypt;
+import ch.epfl.cs107.crypto.Pads;
+import ch.epfl.cs107.crypto.StreamCipher;
 import ch.epfl.cs107.stegano.ImageSteganography;
+import ch.epfl.cs107.stegano.StripedSteganography;
 import ch.epfl.cs107.stegano.TextSteganography;
+import ch.epfl.cs107.utils.BinaryImage;
 import ch.epfl.cs107.utils.Bit;
+import ch.epfl.cs107.utils.BitVector;
+import ch.epfl.cs107.utils.GrayPlane;
 import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.ImageBuffer;
 import ch.epfl.cs107.utils.Text;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Random;
+import javax.imageio.ImageIO;
 
 /**
  * Entry point of the program
@@ -55,6 +74,7 @@ public final class Main {
         assert testEmbedInXthBit();
         assert testEmbedInLSB();
         assert testByteConversion();
+        assert testBitVector();
         // ========== Test Text ==========
         assert testToString();
         assert testToBitArray();
@@ -67,6 +87,11 @@ public final class Main {
         assert testGrayImageToBinary();
         assert testImageFromGray();
         assert testImageFromBinary();
+        assert testPixelEngine();
+        assert testBinaryImage();
+        assert testImageStripes();
+        assert testRawImages();
+        assert testImageCache();
         Helper.dialog("Tests ", "Image manipulation passed");
         assert testWithRealImage("image-formats");
         assert testBinaryWithRealImage("image-formats");
@@ -75,12 +100,22 @@ public final class Main {
         String message = "La vie est un long fleuve tranquille :-)";
         String key = "2cF%5";
         testCrypto(message, key);
+        assert testCipherEngine();
+        assert testCipherEngineRanges();
+        assert testCaesarXorKeyRecovery();
+        assert testVigenereKeyRecovery();
+        assert testSeekableCbc();
+        assert testCipherSessions();
+        assert testCipherPipeline();
+        assert testPads();
         // message = Text.toString(Helper.read("text_one.txt"));
         // System.out.println(message);
         Helper.dialog("Tests ", "Cryptography passed");
         // ========== Test Steganography Methods ==========
         assert testEmbedBWImage();
         assert testEmbedText();
+        assert testEmbedTextBitOrder();
+        assert testEmbedTextLowBits();
         assert testImageSteganographyWithImages("the-starry-night");
         Helper.dialog("Tests ", "ImageSteganography passed");
     }
@@ -138,6 +173,45 @@ public final class Main {
         return computedByte == value;
     }
 
+    // A BitVector holds the bits of the bit arrays, in the same order: the conversions go back and forth on
+    // lengths around the words, the bits read or written 64 at a time are the ones of get and set, and the
+    // embedding gives the images of the bit arrays
+    private static boolean testBitVector() {
+        Random random = new Random(12);
+        for (int length = 0; length <= 40; ++length) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            boolean[] bitArray = Bit.toBitArray(bytes);
+            BitVector vector = Bit.toBitVector(bytes);
+            if (!vector.equals(BitVector.fromBitArray(bitArray)) ||
+                    !Arrays.equals(vector.toBitArray(), bitArray) ||
+                    !Arrays.equals(vector.toBytes(), bytes) ||
+                    !Arrays.equals(Bit.toBytes(vector), bytes))
+                return false;
+
+            BitVector copy = new BitVector(vector.size());
+            for (int from = 0; from < vector.size(); ) {
+                int count = Math.min(random.nextInt(Long.SIZE + 1), vector.size() - from);
+                long bits = 0;
+                for (int i = from; i < from + count; ++i)
+                    bits = bits << 1 | (vector.get(i) ? 1 : 0);
+                if (vector.getBits(from, count) != bits)
+                    return false;
+                copy.setBits(from, count, bits);
+                from += count;
+            }
+            int[][] cover = randomImage(random, 7, 50);
+            int[][] hidden = TextSteganography.embedBitVector(cover, vector);
+            if (!copy.equals(vector) ||
+                    !Arrays.deepEquals(hidden, TextSteganography.embedBitArray(cover, bitArray)) ||
+                    !TextSteganography.revealBitVector(hidden).equals(BitVector.fromBitArray(TextSteganography.revealBitArray(hidden))))
+                return false;
+        }
+        String message = "ô$ La vie est un long fleuve tranquille";
+        return Text.toString(Text.toBitVector(message)).equals(message) &&
+                Arrays.equals(Text.toBitVector(message).toBitArray(), Text.toBitArray(message));
+    }
+
     // ============================================================================================
     // ======================================== TEXT ==============================================
     // ============================================================================================
@@ -232,6 +306,229 @@ public final class Main {
         return Arrays.deepEquals(computed, expected);
     }
 
+    // The engine is chosen with -Dch.epfl.cs107.image.engine=vector|scalar: every one must give the pixel
+    // at a time results, on widths covering whole vectors (up to 16 pixels) and their tails
+    private static boolean testPixelEngine() {
+        Random random = new Random(20);
+        for (int width = 1; width <= 40; ++width) {
+            int[][] image = randomImage(random, 3, width);
+            int[][] gray = new int[3][width], argb = new int[3][width];
+            boolean[][] binary = new boolean[3][width];
+            for (int i = 0; i < 3; ++i) {
+                for (int j = 0; j < width; ++j) {
+                    gray[i][j] = Image.gray(image[i][j]);
+                    binary[i][j] = Image.binary(gray[i][j], IMAGE_THRESHOLD);
+                    argb[i][j] = Image.argb((byte) 0xFF, (byte) gray[i][j], (byte) gray[i][j], (byte) gray[i][j]);
+                }
+            }
+            ImageBuffer buffer = ImageBuffer.fromArray(image);
+            if (!Arrays.deepEquals(Image.toGray(image), gray) ||
+                    !Arrays.deepEquals(Image.toBinary(gray, IMAGE_THRESHOLD), binary) ||
+                    !Arrays.deepEquals(Image.fromGray(gray), argb) ||
+                    !Arrays.deepEquals(Image.toGray(buffer).toArray(), gray) ||
+                    !Arrays.deepEquals(Image.fromGray(Image.toGray(buffer)).toArray(), argb))
+                return false;
+        }
+        return true;
+    }
+
+    // A BinaryImage packs 64 pixels per word: same pixels as the boolean[][] images, on widths
+    // around the words, for the conversions and the embedding
+    private static boolean testBinaryImage() {
+        Random random = new Random(21);
+        for (int width = 1; width <= 130; width += 3) {
+            int[][] gray = Image.toGray(randomImage(random, 5, width));
+            boolean[][] binary = Image.toBinary(gray, IMAGE_THRESHOLD);
+            BinaryImage packed = Image.toBinaryPacked(gray, IMAGE_THRESHOLD);
+            int[][] cover = randomImage(random, 6, width + 1);
+            int[][] hidden = ImageSteganography.embedBW(cover, binary);
+            if (!packed.equals(BinaryImage.fromArray(binary)) ||
+                    !Arrays.deepEquals(packed.toArray(), binary) ||
+                    !Arrays.deepEquals(Image.fromBinary(packed).toArray(), Image.fromBinary(binary)) ||
+                    !Arrays.deepEquals(ImageSteganography.embedBW(cover, packed), hidden) ||
+                    !Arrays.deepEquals(ImageSteganography.revealBWPacked(hidden).toArray(), ImageSteganography.revealBW(hidden)))
+                return false;
+        }
+        return true;
+    }
+
+    // The stripes of every kind of png (the 8 bits ones go through the sequential decoder, the others through
+    // ImageIO) are the rows of the whole image, also when going back up; the striped steganography gives the
+    // in memory results (run with -Dch.epfl.cs107.image.stripe=1000 to spread the images over several stripes)
+    private static boolean testImageStripes() {
+        Random random = new Random(17);
+        int width = 37, height = 53;
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_INDEXED,
+                BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_BYTE_BINARY};
+        for (int type : types) {
+            BufferedImage image;
+            if (type == BufferedImage.TYPE_BYTE_INDEXED) {
+                //↓ A palette with transparent entries, written as a tRNS chunk
+                byte[] red = new byte[200], green = new byte[200], blue = new byte[200], alpha = new byte[200];
+                random.nextBytes(red);
+                random.nextBytes(green);
+                random.nextBytes(blue);
+                random.nextBytes(alpha);
+                image = new BufferedImage(width, height, type, new IndexColorModel(8, 200, red, green, blue, alpha));
+                for (int i = 0; i < height; ++i)
+                    for (int j = 0; j < width; ++j)
+                        image.getRaster().setSample(j, i, 0, random.nextInt(200));
+            } else {
+                image = new BufferedImage(width, height, type);
+                for (int i = 0; i < height; ++i)
+                    for (int j = 0; j < width; ++j)
+                        image.setRGB(j, i, random.nextInt());
+            }
+            String path = tempFile(".png");
+            try {
+                ImageIO.write(image, "png", new File(path));
+            } catch (IOException e) {
+                return false;
+            }
+            int[][] expected = Helper.readImageBuffer(path).toArray();
+            try (Helper.ImageStripes stripes = Helper.openImageStripes(path)) {
+                if (stripes.width() != width || stripes.height() != height)
+                    return false;
+                for (int y = 0; y < height; y += 10) {
+                    int rows = Math.min(10, height - y);
+                    if (!Arrays.deepEquals(stripes.read(y, rows).toArray(), Arrays.copyOfRange(expected, y, y + rows)))
+                        return false;
+                }
+                //↓ Back to rows already read: the decoder starts over
+                if (!Arrays.deepEquals(stripes.read(5, 20).toArray(), Arrays.copyOfRange(expected, 5, 25)))
+                    return false;
+            }
+        }
+
+        ImageBuffer cover = ImageBuffer.fromArray(randomImage(random, 301, 123));
+        ImageBuffer load = ImageBuffer.fromArray(randomImage(random, 200, 100));
+        String coverPath = tempFile(".png"), loadPath = tempFile(".png"), outputPath = tempFile(".png");
+        Helper.writeImage(coverPath, cover);
+        Helper.writeImage(loadPath, load);
+        for (int k = 1; k <= TextSteganography.MAX_BITS_PER_PIXEL; ++k) {
+            byte[] message = new byte[TextSteganography.capacity(cover, k) - k];
+            random.nextBytes(message);
+            StripedSteganography.embedText(coverPath, message, k, outputPath);
+            if (!Arrays.deepEquals(Helper.readImageBuffer(outputPath).toArray(), TextSteganography.embedText(cover, message, k).toArray()) ||
+                    !Arrays.equals(StripedSteganography.revealText(outputPath, k, message.length), message))
+                return false;
+        }
+        ImageBuffer hidden = ImageSteganography.embedARGB(cover, load, IMAGE_THRESHOLD);
+        StripedSteganography.embedARGB(coverPath, loadPath, IMAGE_THRESHOLD, outputPath);
+        if (!Arrays.deepEquals(Helper.readImageBuffer(outputPath).toArray(), hidden.toArray()))
+            return false;
+        String revealedPath = tempFile(".png");
+        StripedSteganography.revealBW(outputPath, revealedPath);
+        return Arrays.deepEquals(Helper.readImageBuffer(revealedPath).toArray(),
+                                 Image.fromBinary(ImageSteganography.revealBW(hidden)).toArray());
+    }
+
+    // The raw files give back the pixels they were written with, convert from and to png without any change,
+    // and refuse to load another format, a file which is not a raw image, or a truncated one
+    private static boolean testRawImages() {
+        Random random = new Random(25);
+        ImageBuffer image = ImageBuffer.fromArray(randomImage(random, 45, 67));
+        GrayPlane gray = Image.toGrayPlane(image);
+        String argbPath = tempFile(".raw"), grayPath = tempFile(".raw"), pngPath = tempFile(".png");
+        Helper.writeRawImage(argbPath, image);
+        Helper.writeRawImage(grayPath, gray);
+        if (!Helper.readRawHeader(argbPath).equals(new Helper.RawHeader(67, 45, Helper.RawFormat.ARGB)) ||
+                !Helper.readRawHeader(grayPath).equals(new Helper.RawHeader(67, 45, Helper.RawFormat.GRAY)) ||
+                !Arrays.deepEquals(Helper.readRawImage(argbPath).toArray(), image.toArray()) ||
+                !Arrays.deepEquals(Helper.readRawGrayPlane(grayPath).toArray(), gray.toArray()))
+            return false;
+
+        Helper.convertToPng(argbPath, pngPath);
+        if (!Arrays.deepEquals(Helper.readImageBuffer(pngPath).toArray(), image.toArray()))
+            return false;
+        String convertedPath = tempFile(".raw");
+        Helper.convertToRaw(pngPath, convertedPath);
+        if (!Arrays.deepEquals(Helper.readRawImage(convertedPath).toArray(), image.toArray()))
+            return false;
+        Helper.convertToPng(grayPath, pngPath);
+        if (!Arrays.deepEquals(Helper.readImageBuffer(pngPath).toArray(), Image.fromGray(gray).toArray()))
+            return false;
+
+        byte[] bytes = Helper.read(argbPath);
+        String truncatedHeader = tempFile(".raw"), truncatedPixels = tempFile(".raw");
+        Helper.write(truncatedHeader, Arrays.copyOf(bytes, 10));
+        Helper.write(truncatedPixels, Arrays.copyOf(bytes, bytes.length - 1));
+        return fails(() -> Helper.readRawGrayPlane(argbPath)) &&
+                fails(() -> Helper.readRawImage(grayPath)) &&
+                fails(() -> Helper.readRawHeader(pngPath)) &&
+                fails(() -> Helper.readRawHeader(truncatedHeader)) &&
+                fails(() -> Helper.readRawImage(truncatedPixels));
+    }
+
+    // The cache counts its hits and misses, evicts the least recently read image when full, decodes a file
+    // again once it was modified, and hands out copies the readers can change
+    private static boolean testImageCache() {
+        Random random = new Random(24);
+        int[][] first = randomImage(random, 10, 20), second = randomImage(random, 10, 20), third = randomImage(random, 10, 20);
+        String firstPath = tempFile(".png"), secondPath = tempFile(".png"), thirdPath = tempFile(".png");
+        Helper.writeImage(firstPath, first);
+        Helper.writeImage(secondPath, second);
+        Helper.writeImage(thirdPath, third);
+        Helper.setImageCacheCapacity(2 * 10 * 20);
+        Helper.clearImageCache();
+        try {
+            Helper.readImage(firstPath);
+            //↓ The reader changes its copy, not the cached pixels
+            Helper.readImage(firstPath)[0][0] ^= 1;
+            Helper.readImageBuffer(firstPath).data()[0] ^= 1;
+            if (!Arrays.deepEquals(Helper.readImage(firstPath), first) ||
+                    !Helper.imageCacheStats().equals(new Helper.ImageCacheStats(3, 1, 0, 1, 200)))
+                return false;
+            //↓ The first image is the least recently read one
+            Helper.readImage(secondPath);
+            Helper.readImage(thirdPath);
+            Helper.readImage(secondPath);
+            if (!Helper.imageCacheStats().equals(new Helper.ImageCacheStats(4, 3, 1, 2, 400)) ||
+                    !Arrays.deepEquals(Helper.readImage(firstPath), first) ||
+                    !Helper.imageCacheStats().equals(new Helper.ImageCacheStats(4, 4, 2, 2, 400)))
+                return false;
+
+            //↓ Same size, other pixels and a later modification time: decoded again
+            Helper.writeImage(firstPath, second);
+            File file = new File(firstPath);
+            if (!file.setLastModified(file.lastModified() + 2000))
+                return false;
+            return Arrays.deepEquals(Helper.readImage(firstPath), second) &&
+                    Helper.imageCacheStats().equals(new Helper.ImageCacheStats(4, 5, 2, 2, 400));
+        } finally {
+            Helper.setImageCacheCapacity(Long.getLong("ch.epfl.cs107.image.cache", 0));
+            Helper.clearImageCache();
+        }
+    }
+
+    private static boolean fails(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static String tempFile(String suffix) {
+        try {
+            File file = File.createTempFile("cs107", suffix);
+            file.deleteOnExit();
+            return file.getAbsolutePath();
+        } catch (IOException e) {
+            return Helper.fail("Cannot create a temporary file");
+        }
+    }
+
+    private static int[][] randomImage(Random random, int height, int width) {
+        int[][] image = new int[height][width];
+        for (int[] row : image)
+            for (int j = 0; j < width; ++j)
+                row[j] = random.nextInt();
+        return image;
+    }
+
     private static boolean testWithRealImage(String path){
         var coloured = Helper.readImage(path + File.separator + "argb.png");
         Helper.show(coloured, "ARGB for " + path);
@@ -307,6 +604,236 @@ public final class Main {
         return Arrays.equals(string, decryptedAsBytes);
     }
 
+    // The engine is chosen with -Dch.epfl.cs107.crypto.engine=vector|swar|scalar: every one must give
+    // the byte at a time results, on lengths covering whole vectors (up to 64 bytes) and their tails
+    private static boolean testCipherEngine() {
+        Random random = new Random(3);
+        for (int length = 0; length < 200; ++length) {
+            byte[] plainText = new byte[length];
+            random.nextBytes(plainText);
+            byte[] pad = new byte[length];
+            random.nextBytes(pad);
+            byte[] keyword = new byte[1 + random.nextInt(70)];
+            random.nextBytes(keyword);
+            byte key = (byte) random.nextInt();
+
+            byte[] caesar = new byte[length], vigenere = new byte[length], xor = new byte[length], oneTimePad = new byte[length];
+            for (int i = 0; i < length; ++i) {
+                caesar[i] = (byte) (plainText[i] + key);
+                vigenere[i] = (byte) (plainText[i] + keyword[i % keyword.length]);
+                xor[i] = (byte) (plainText[i] ^ key);
+                oneTimePad[i] = (byte) (plainText[i] ^ pad[i]);
+            }
+            if (!Arrays.equals(Encrypt.caesar(plainText, key), caesar) ||
+                    !Arrays.equals(Encrypt.vigenere(plainText, keyword), vigenere) ||
+                    !Arrays.equals(Decrypt.vigenere(vigenere, keyword), plainText) ||
+                    !Arrays.equals(Encrypt.xor(plainText, key), xor) ||
+                    !Arrays.equals(Encrypt.oneTimePad(plainText, pad), oneTimePad))
+                return false;
+        }
+        return true;
+    }
+
+    // The word wide engine reads and writes words at any offset: the ranges start and end off the words,
+    // and are also encoded in place
+    private static boolean testCipherEngineRanges() {
+        Random random = new Random(6);
+        byte[] buffer = new byte[100];
+        random.nextBytes(buffer);
+        byte[] pad = new byte[buffer.length];
+        random.nextBytes(pad);
+        byte[] keyword = Text.toBytes("2cF%5");
+        for (int off = 0; off < Long.BYTES + 1; ++off) {
+            for (int len = 0; off + len <= buffer.length; len += 7) {
+                byte[] expected = buffer.clone(), computed = buffer.clone();
+                for (int i = 0; i < len; ++i)
+                    expected[off + i] = (byte) ((buffer[off + i] + keyword[i % keyword.length]) ^ pad[off + i]);
+                Encrypt.vigenere(buffer, off, len, keyword, computed, off);
+                Encrypt.oneTimePadInPlace(computed, off, len, pad, off);
+                if (!Arrays.equals(expected, computed))
+                    return false;
+
+                Decrypt.oneTimePadInPlace(computed, off, len, pad, off);
+                Decrypt.vigenereInPlace(computed, off, len, keyword);
+                if (!Arrays.equals(buffer, computed))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // The frequency scoring finds the key of an English text for every kind of key (including 0 and the
+    // negative bytes), on short and long ciphers
+    private static boolean testCaesarXorKeyRecovery() {
+        byte[] text = Helper.read("text_one.txt");
+        for (int length : new int[]{200, text.length}) {
+            byte[] plainText = Arrays.copyOf(text, length);
+            for (int key = -128; key < 128; key += 16) {
+                if (Cryptanalysis.caesarKey(Encrypt.caesar(plainText, (byte) key)) != (byte) key ||
+                        Cryptanalysis.xorKey(Encrypt.xor(plainText, (byte) key)) != (byte) key)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // On short ciphers the keyword length can be estimated as a multiple of the real one: the recovered
+    // keyword must still be the shortest one, including a single byte keyword
+    private static boolean testVigenereKeyRecovery() {
+        byte[] text = Helper.read("text_one.txt");
+        for (String keyword : new String[]{"x", "key", "zebras", "abcdefg", "cryptography"}) {
+            for (int off = 0; off + 300 <= text.length; off += 300) {
+                byte[] plainText = Arrays.copyOfRange(text, off, off + 300);
+                byte[] key = Text.toBytes(keyword);
+                if (!Arrays.equals(Cryptanalysis.vigenere(Encrypt.vigenere(plainText, key)), key))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // The seekable view decodes any range of a cbc cipher on its own: random positions (in the first
+    // block, across the chunks and past the end) and lengths give the ranges of Decrypt.cbc
+    private static boolean testSeekableCbc() {
+        Random random = new Random(5);
+        byte[] plainText = new byte[50_000];
+        random.nextBytes(plainText);
+        byte[] iv = Text.toBytes("2cF%5");
+        String path = tempFile(".bin");
+        Helper.write(path, Encrypt.cbc(plainText, iv));
+        byte[] expected = Decrypt.cbc(Encrypt.cbc(plainText, iv), iv);
+        try (SeekableByteChannel channel = CipherChannels.cbcDecrypting(FileChannel.open(Path.of(path)), iv)) {
+            if (channel.size() != plainText.length)
+                return false;
+            for (int test = 0; test < 100; ++test) {
+                int position = test < 10 ? test : random.nextInt(plainText.length + 10);
+                ByteBuffer buffer = ByteBuffer.allocate(random.nextInt(40_000));
+                int read = channel.position(position).read(buffer);
+                if (position >= plainText.length) {
+                    if (read != -1)
+                        return false;
+                    continue;
+                }
+                if (read != Math.min(buffer.capacity(), plainText.length - position) ||
+                        channel.position() != position + read ||
+                        !Arrays.equals(Arrays.copyOf(buffer.array(), read), Arrays.copyOfRange(expected, position, position + read)))
+                    return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    // A message fed in random fragments gives the one-shot result; after doFinal, Vigenere starts its keyword
+    // over, CBC refuses any input until it gets a fresh iv, and the one-time pad goes on with the rest of the pad
+    private static boolean testCipherSessions() {
+        Random random = new Random(8);
+        byte[] keyword = Text.toBytes("2cF%5"), iv = Text.toBytes("iv!"), newIv = Text.toBytes("IV?");
+        byte[] first = new byte[1000], second = new byte[777], pad = new byte[first.length + second.length];
+        random.nextBytes(first);
+        random.nextBytes(second);
+        random.nextBytes(pad);
+        byte key = (byte) random.nextInt();
+
+        StreamCipher caesar = StreamCipher.encryptCaesar(key), xor = StreamCipher.decryptXor(key);
+        StreamCipher vigenere = StreamCipher.encryptVigenere(keyword), cbc = StreamCipher.encryptCbc(iv);
+        StreamCipher oneTimePad = StreamCipher.encryptOneTimePad(pad);
+        if (!Arrays.equals(inFragments(caesar, first, random), Encrypt.caesar(first, key)) ||
+                !Arrays.equals(inFragments(xor, first, random), Decrypt.xor(first, key)) ||
+                !Arrays.equals(inFragments(vigenere, first, random), Encrypt.vigenere(first, keyword)) ||
+                !Arrays.equals(inFragments(vigenere, second, random), Encrypt.vigenere(second, keyword)) ||
+                !Arrays.equals(inFragments(cbc, first, random), Encrypt.cbc(first, iv)) ||
+                !Arrays.equals(inFragments(oneTimePad, first, random), Encrypt.oneTimePad(first, Arrays.copyOf(pad, first.length))) ||
+                !Arrays.equals(inFragments(oneTimePad, second, random), Encrypt.oneTimePad(second, Arrays.copyOfRange(pad, first.length, pad.length))))
+            return false;
+        try {
+            cbc.update(second, 0, second.length);
+            return false;
+        } catch (RuntimeException e) {
+            // The iv is used up
+        }
+        cbc.reset(newIv);
+        if (!Arrays.equals(inFragments(cbc, second, random), Encrypt.cbc(second, newIv)))
+            return false;
+
+        StreamCipher decryptCbc = StreamCipher.decryptCbc(iv);
+        return Arrays.equals(inFragments(decryptCbc, Encrypt.cbc(first, iv), random), first);
+    }
+
+    private static byte[] inFragments(StreamCipher session, byte[] message, Random random) {
+        byte[] result = new byte[message.length];
+        int done = 0;
+        while (done < message.length && random.nextInt(8) != 0) {
+            int length = random.nextInt(message.length - done + 1);
+            done += session.update(message, done, length, result, done);
+        }
+        byte[] last = session.doFinal(message, done, message.length - done);
+        System.arraycopy(last, 0, result, done, last.length);
+        return result;
+    }
+
+    // A pipeline gives the stages applied one after the other, on lengths around its chunks, also when
+    // decrypting in place; with a cbc or one-time pad stage it refuses to encrypt a second message
+    private static boolean testCipherPipeline() {
+        Random random = new Random(7);
+        byte[] keyword = Text.toBytes("2cF%5"), iv = Text.toBytes("iv!");
+        byte key = (byte) random.nextInt();
+        for (int length : new int[]{0, 1, 100, CipherPipeline.CHUNK_SIZE, CipherPipeline.CHUNK_SIZE + 1, 40_000}) {
+            byte[] plainText = new byte[length], pad = new byte[length];
+            random.nextBytes(plainText);
+            random.nextBytes(pad);
+            CipherPipeline pipeline = CipherPipeline.builder()
+                    .vigenere(keyword).cbc(iv).xor(key).caesar(key).oneTimePad(pad).build();
+            byte[] expected = Encrypt.oneTimePad(Encrypt.caesar(Encrypt.xor(Encrypt.cbc(Encrypt.vigenere(plainText, keyword), iv), key), key), pad);
+            byte[] cipher = pipeline.encrypt(plainText);
+            if (!Arrays.equals(cipher, expected) || !Arrays.equals(pipeline.decrypt(cipher), plainText))
+                return false;
+            //↓ In place, off the start of the array
+            byte[] buffer = new byte[length + 2];
+            System.arraycopy(cipher, 0, buffer, 1, length);
+            pipeline.decrypt(buffer, 1, length, buffer, 1);
+            if (!Arrays.equals(Arrays.copyOfRange(buffer, 1, length + 1), plainText))
+                return false;
+            try {
+                pipeline.encrypt(plainText);
+                return false;
+            } catch (RuntimeException e) {
+                // The iv and the pad are used up
+            }
+
+            CipherPipeline reusable = CipherPipeline.builder().xor(key).vigenere(keyword).build();
+            byte[] inPlace = Encrypt.vigenere(Encrypt.xor(plainText, key), keyword);
+            reusable.decrypt(inPlace, 0, length, inPlace, 0);
+            if (!Arrays.equals(reusable.encrypt(plainText), Encrypt.vigenere(Encrypt.xor(plainText, key), keyword)) ||
+                    !Arrays.equals(inPlace, plainText))
+                return false;
+        }
+        return true;
+    }
+
+    // A seeded pad is the same at every call, below and above the parallel threshold, and the whole chunks
+    // of a long pad are the ones of a shorter pad of the same seed; filling a range leaves the bytes around it
+    private static boolean testPads() {
+        int below = Math.max(0, Pads.PARALLEL_THRESHOLD - Pads.CHUNK_SIZE + 3), above = Pads.PARALLEL_THRESHOLD + 5;
+        for (int length : new int[]{0, 1, 100, below, above}) {
+            if (!Arrays.equals(Pads.generate(length, 42), Pads.generate(length, 42)))
+                return false;
+        }
+        int whole = below / Pads.CHUNK_SIZE * Pads.CHUNK_SIZE;
+        byte[] shorter = Pads.generate(below, 42), longer = Pads.generate(above, 42);
+        if (!Arrays.equals(longer, 0, whole, shorter, 0, whole) || Arrays.equals(longer, Pads.generate(above, 43)))
+            return false;
+
+        for (int length : new int[]{100, above}) {
+            byte[] buffer = new byte[length + 2];
+            Pads.fill(buffer, 1, length, Pads.Mode.FAST);
+            if (buffer[0] != 0 || buffer[length + 1] != 0)
+                return false;
+        }
+        return true;
+    }
+
     // This might help you resolve the challenge ;-)
     private static void testCrypto(String message, String key) {
         byte[] byteMessage = Text.toBytes(message);
@@ -362,6 +889,60 @@ public final class Main {
         return Arrays.deepEquals(EXPECTED_IMAGE, hidden) && Arrays.deepEquals(cover, new int[10][10]);
     }
 
+    // embedText and revealText go straight from the bytes to the LSB: same bits, in the same order,
+    // as the bit arrays of Bit.toBitArray, including a last row only partly filled
+    private static boolean testEmbedTextBitOrder() {
+        Random random = new Random(13);
+        int[][] cover = new int[7][13];
+        for (int[] row : cover)
+            for (int j = 0; j < row.length; ++j)
+                row[j] = random.nextInt();
+        for (int length = 0; length <= 7 * 13 / Byte.SIZE; ++length) {
+            byte[] message = new byte[length];
+            random.nextBytes(message);
+            int[][] hidden = TextSteganography.embedText(cover, message);
+            if (!Arrays.deepEquals(hidden, TextSteganography.embedBitArray(cover, Bit.toBitArray(message))) ||
+                    !Arrays.equals(TextSteganography.revealText(hidden), Bit.toBytes(TextSteganography.revealBitArray(hidden))) ||
+                    !Arrays.equals(Arrays.copyOf(TextSteganography.revealText(hidden), length), message))
+                return false;
+        }
+        return true;
+    }
+
+    // With k bits per pixel, the pixel p carries the bits p * k to p * k + k - 1 of the message, the first one
+    // in its bit k - 1 (a last pixel only partly used keeps its other bits); revealText gives capacity bytes
+    private static boolean testEmbedTextLowBits() {
+        Random random = new Random(14);
+        int[][] cover = randomImage(random, 7, 13);
+        for (int k = 1; k <= TextSteganography.MAX_BITS_PER_PIXEL; ++k) {
+            int capacity = TextSteganography.capacity(cover, k);
+            if (capacity != 7 * 13 * k / Byte.SIZE)
+                return false;
+            for (int length = 0; length <= capacity; ++length) {
+                byte[] message = new byte[length];
+                random.nextBytes(message);
+                int[][] expected = new int[cover.length][];
+                for (int i = 0; i < cover.length; ++i)
+                    expected[i] = cover[i].clone();
+                boolean[] bits = Bit.toBitArray(message);
+                for (int b = 0; b < bits.length; ++b) {
+                    int pixel = b / k;
+                    int[] row = expected[pixel / 13];
+                    row[pixel % 13] = Bit.embedInXthBit(row[pixel % 13], bits[b], k - 1 - b % k);
+                }
+                int[][] hidden = TextSteganography.embedText(cover, message, k);
+                byte[] revealed = TextSteganography.revealText(hidden, k);
+                if (!Arrays.deepEquals(hidden, expected) ||
+                        !Arrays.deepEquals(TextSteganography.embedText(ImageBuffer.fromArray(cover), message, k).toArray(), expected) ||
+                        revealed.length != capacity ||
+                        !Arrays.equals(Arrays.copyOf(revealed, length), message) ||
+                        !Arrays.equals(TextSteganography.revealText(ImageBuffer.fromArray(hidden), k), revealed))
+                    return false;
+            }
+        }
+        return true;
+    }
+
     private static boolean testImageSteganographyWithImages(String path){
         var image  = Helper.readImage(path + File.separator + "image.png");
         var cover  = Helper.readImage(path + File.separator + "cover.png");
@@ -0,0 +1,77 @@
+package ch.epfl.cs107.crypto;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join decoding of a cbc-encrypted range.
+ * <p>
+ * A plain block only depends on its cipher block and on the previous cipher block
+ * (<code>plain[i] = cipher[i] ^ cipher[i - T]</code>), so the range is split into block aligned
+ * halves until they are small enough, and every half is decoded independently.
+ */
+final class CbcDecryptTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Size (in bytes) under which a range is decoded by the current thread */
+    static final int LEAF_SIZE = 1 << 16;
+
+    private final byte[] src;
+    private final int srcOff;
+    private final byte[] iv;
+    private final byte[] dst;
+    private final int dstOff;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param src array containing the cipher
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param iv the pad of size BLOCKSIZE used to start the chain encoding
+     * @param dst array receiving the decoded message, must not overlap <code>src</code>
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     * @param from first position (relative to the offsets) to decode
+     * @param to position (relative to the offsets) after the last one to decode
+     */
+    CbcDecryptTask(byte[] src, int srcOff, byte[] iv, byte[] dst, int dstOff, int from, int to) {
+        this.src = src;
+        this.srcOff = srcOff;
+        this.iv = iv;
+        this.dst = dst;
+        this.dstOff = dstOff;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        final int T = iv.length;
+        if (to - from <= Math.max(LEAF_SIZE, T)) {
+            decode(from, to);
+            return;
+        }
+        // Split on a block boundary, so that every task works on whole blocks
+        final int mid = from + ((to - from) / 2) / T * T;
+        if (mid == from) {
+            decode(from, to);
+            return;
+        }
+        invokeAll(new CbcDecryptTask(src, srcOff, iv, dst, dstOff, from, mid),
+                  new CbcDecryptTask(src, srcOff, iv, dst, dstOff, mid, to));
+    }
+
+    private void decode(int from, int to) {
+        final int T = iv.length;
+        final var engine = CipherEngine.current();
+        //↓ The first block is decrypted using the original IV ...
+        if (from < T) {
+            final int end = Math.min(T, to);
+            engine.xor(src, srcOff + from, end - from, iv, from, dst, dstOff + from);
+            from = end;
+        }
+        //↓ ... and all the others using the cipher's previous block
+        if (from < to)
+            engine.xor(src, srcOff + from, to - from, src, srcOff + from - T, dst, dstOff + from);
+    }
+
+}
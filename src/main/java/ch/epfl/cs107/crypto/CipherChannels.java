@@ -0,0 +1,290 @@
+package ch.epfl.cs107.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Adapters applying a {@link StreamCipher} to the bytes going through a channel, and a random
+ * access view decoding cbc-encrypted channels.
+ * <p>
+ * Each adapter works with a fixed size buffer, so large files can be encrypted or
+ * decrypted with a constant amount of memory.
+ */
+public final class CipherChannels {
+
+    private CipherChannels(){}
+
+    // ============================================================================================
+    // ======================================== ADAPTERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Build a channel applying the given cipher to the bytes read from <code>channel</code>
+     * @param channel channel to read from
+     * @param cipher cipher to apply to the read bytes
+     * @return the wrapping channel
+     */
+    public static ReadableByteChannel readable(ReadableByteChannel channel, StreamCipher cipher) {
+        assert (channel != null && cipher != null);
+        return new Readable(channel, cipher);
+    }
+
+    /**
+     * Build a channel applying the given cipher to the bytes written to <code>channel</code>
+     * @param channel channel to write to
+     * @param cipher cipher to apply to the written bytes
+     * @return the wrapping channel
+     */
+    public static WritableByteChannel writable(WritableByteChannel channel, StreamCipher cipher) {
+        assert (channel != null && cipher != null);
+        return new Writable(channel, cipher);
+    }
+
+    /**
+     * Build a read-only, seekable view decoding a cbc-encrypted channel (see {@link Decrypt#cbc(byte[], byte[])}).
+     * <p>
+     * Decoding block <code>i</code> only needs the cipher blocks <code>i - 1</code> and <code>i</code>,
+     * so reading a range of the plain text only reads that range of the cipher and the block before it,
+     * whatever the position.
+     * @param cipher channel containing the cipher, typically a {@link FileChannel}
+     * @param iv the pad of size BLOCKSIZE used to start the chain encoding
+     * @return the decoding channel, of the same size as <code>cipher</code>
+     */
+    public static SeekableByteChannel cbcDecrypting(SeekableByteChannel cipher, byte[] iv) {
+        assert (cipher != null);
+        assert (iv != null && iv.length > 0);
+        return new SeekableCbc(cipher, iv.clone());
+    }
+
+    /**
+     * Copy all the bytes of <code>src</code> to <code>dst</code>, applying the given cipher on the way
+     * @param src channel to read from
+     * @param dst channel to write to
+     * @param cipher cipher to apply
+     * @return number of transferred bytes
+     * @throws IOException if one of the channels fails
+     */
+    public static long transfer(ReadableByteChannel src, WritableByteChannel dst, StreamCipher cipher) throws IOException {
+        assert (src != null && dst != null && cipher != null);
+        final var buffer = ByteBuffer.allocate(StreamCipher.CHUNK_SIZE);
+        final var array = buffer.array();
+        var total = 0L;
+        while (src.read(buffer) >= 0) {
+            buffer.flip();
+            cipher.process(array, 0, buffer.limit());
+            while (buffer.hasRemaining())
+                total += dst.write(buffer);
+            buffer.clear();
+        }
+        return total;
+    }
+
+    // ============================================================================================
+    // ===================================== IMPLEMENTATIONS ======================================
+    // ============================================================================================
+
+    private static final class Readable implements ReadableByteChannel {
+
+        private final ReadableByteChannel channel;
+        private final StreamCipher cipher;
+        private final byte[] scratch = new byte[StreamCipher.CHUNK_SIZE];
+
+        private Readable(ReadableByteChannel channel, StreamCipher cipher) {
+            this.channel = channel;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            final var start = dst.position();
+            final var n = channel.read(dst);
+            if (n <= 0)
+                return n;
+            if (dst.hasArray()) {
+                cipher.process(dst.array(), dst.arrayOffset() + start, n);
+            } else {
+                // Direct buffers: go through the scratch buffer, chunk by chunk
+                final var view = dst.duplicate();
+                for (var done = 0; done < n; ) {
+                    final var len = Math.min(n - done, scratch.length);
+                    view.position(start + done);
+                    view.get(scratch, 0, len);
+                    cipher.process(scratch, 0, len);
+                    view.position(start + done);
+                    view.put(scratch, 0, len);
+                    done += len;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class SeekableCbc implements SeekableByteChannel {
+
+        private final SeekableByteChannel channel;
+        private final byte[] iv;
+        /** Cipher of the chunk being decoded, preceded by the cipher block before it */
+        private final ByteBuffer cipher;
+        private final byte[] plain = new byte[StreamCipher.CHUNK_SIZE];
+        private long position;
+
+        private SeekableCbc(SeekableByteChannel channel, byte[] iv) {
+            this.channel = channel;
+            this.iv = iv;
+            this.cipher = ByteBuffer.allocate(StreamCipher.CHUNK_SIZE + iv.length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            final int T = iv.length;
+            final long size = channel.size();
+            if (position >= size)
+                return -1;
+            var total = 0;
+            while (dst.hasRemaining() && position < size) {
+                final int len = (int) Math.min(Math.min(dst.remaining(), plain.length), size - position);
+                //↓ Read the cipher of the chunk and the cipher block preceding it (if any)
+                final long start = Math.max(0, position - T);
+                final int back = (int) (position - start);
+                //↓ The cipher got shorter since size() was read: end of the channel
+                if (readFully(start, back + len) < back + len)
+                    return total == 0 ? -1 : total;
+                final var c = cipher.array();
+                //↓ Bytes of the first block are decrypted using the original IV ...
+                int i = 0;
+                for (; i < len && position + i < T; ++i)
+                    plain[i] = (byte) (c[back + i] ^ iv[(int) position + i]);
+                //↓ ... and all the others using the cipher's previous block
+                if (i < len)
+                    CipherEngine.current().xor(c, back + i, len - i, c, back + i - T, plain, i);
+                dst.put(plain, 0, len);
+                position += len;
+                total += len;
+            }
+            return total;
+        }
+
+        /**
+         * Read <code>len</code> bytes of cipher from <code>from</code> into {@link #cipher}
+         * @return the number of read bytes, less than <code>len</code> only at the end of the channel
+         */
+        private int readFully(long from, int len) throws IOException {
+            cipher.clear().limit(len);
+            if (channel instanceof FileChannel file) {
+                // Positional reads don't touch the position of the file
+                while (cipher.hasRemaining())
+                    if (file.read(cipher, from + cipher.position()) < 0)
+                        break;
+            } else {
+                channel.position(from);
+                while (cipher.hasRemaining())
+                    if (channel.read(cipher) < 0)
+                        break;
+            }
+            return cipher.position();
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            if (newPosition < 0)
+                throw new IllegalArgumentException("Negative position : " + newPosition);
+            ensureOpen();
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!channel.isOpen())
+                throw new ClosedChannelException();
+        }
+    }
+
+    private static final class Writable implements WritableByteChannel {
+
+        private final WritableByteChannel channel;
+        private final StreamCipher cipher;
+        private final ByteBuffer buffer = ByteBuffer.allocate(StreamCipher.CHUNK_SIZE);
+
+        private Writable(WritableByteChannel channel, StreamCipher cipher) {
+            this.channel = channel;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            // Every accepted byte is processed and fully written, the cipher cannot go back
+            final var array = buffer.array();
+            final var n = src.remaining();
+            while (src.hasRemaining()) {
+                final var len = Math.min(src.remaining(), array.length);
+                buffer.clear();
+                src.get(array, 0, len);
+                cipher.process(array, 0, len);
+                buffer.limit(len);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
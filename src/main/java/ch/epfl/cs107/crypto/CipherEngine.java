@@ -0,0 +1,214 @@
+package ch.epfl.cs107.crypto;
+
+import ch.epfl.cs107.Helper;
+
+import java.util.Arrays;
+
+/**
+ * Byte kernels shared by the algorithms of {@link Encrypt}, {@link Decrypt} and {@link StreamCipher}.
+ * <p>
+ * The engine is picked once, when the class is loaded, according to the system property
+ * <code>ch.epfl.cs107.crypto.engine</code>:
+ * <ul>
+ *     <li><code>auto</code> (default): the {@link VectorCipherEngine vector} engine when the
+ *     <code>jdk.incubator.vector</code> module is available (<code>--add-modules jdk.incubator.vector</code>),
+ *     the {@link SwarCipherEngine word wide} one otherwise</li>
+ *     <li><code>vector</code>: the vector engine, failing if the module is not available</li>
+ *     <li><code>swar</code>: the word wide engine, 8 bytes at a time in a <code>long</code></li>
+ *     <li><code>scalar</code>: the byte at a time loops</li>
+ * </ul>
+ * All the engines give exactly the same output.
+ */
+abstract class CipherEngine {
+
+    /** Name of the system property used to choose the engine */
+    static final String PROPERTY = "ch.epfl.cs107.crypto.engine";
+
+    /** Engine used by the whole package */
+    private static final CipherEngine CURRENT = select(System.getProperty(PROPERTY, "auto"));
+
+    /** Table of the last keyword of {@link #keyTable(byte[])} */
+    private volatile KeyTable lastKeyTable;
+
+    CipherEngine(){}
+
+    /**
+     * @return the engine used by the package
+     */
+    static CipherEngine current() {
+        return CURRENT;
+    }
+
+    /**
+     * @return the name of the engine, for diagnostics
+     */
+    abstract String name();
+
+    // ============================================================================================
+    // ======================================== KERNELS ===========================================
+    // ============================================================================================
+
+    /**
+     * <code>dst[dstOff + i] = src[srcOff + i] + key</code>
+     */
+    abstract void add(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = src[srcOff + i] + sign * keyword[(keyOff + i) % keyword.length]</code>,
+     * <code>sign</code> being 1 or -1
+     */
+    abstract void addKeyword(byte[] src, int srcOff, int len, KeyTable keyword, int keyOff, int sign, byte[] dst, int dstOff);
+
+    /**
+     * @return the number of bytes of a keyword read at once by {@link #addKeyword}
+     */
+    abstract int keyLanes();
+
+    // ============================================================================================
+    // ======================================== KEY TABLES ========================================
+    // ============================================================================================
+
+    /**
+     * Keyword of {@link #addKeyword}, repeated over <code>keyword.length + keyLanes()</code> bytes so the
+     * bytes of any position can be read at once from an index below <code>keyword.length</code>.
+     * Built once per keyword: the sessions of {@link StreamCipher} keep theirs, the other callers go through
+     * {@link #keyTable(byte[])}.
+     */
+    static final class KeyTable {
+
+        /** Copy of the keyword, to recognize it */
+        private final byte[] keyword;
+        /** Keyword repeated over <code>keyword.length + keyLanes()</code> bytes */
+        final byte[] keys;
+
+        private KeyTable(byte[] keyword, int lanes) {
+            this.keyword = keyword.clone();
+            this.keys = new byte[keyword.length + lanes];
+            for (int j = 0; j < keys.length; ++j)
+                keys[j] = keyword[j % keyword.length];
+        }
+
+        /**
+         * @return the length of the keyword
+         */
+        int length() {
+            return keyword.length;
+        }
+    }
+
+    /**
+     * @param keyword the keyword, not empty
+     * @return a new table of the keyword for this engine
+     */
+    KeyTable newKeyTable(byte[] keyword) {
+        assert (keyword != null && keyword.length != 0);
+        return new KeyTable(keyword, keyLanes());
+    }
+
+    /**
+     * @param keyword the keyword, not empty
+     * @return the table of the keyword, the one of the previous call when the keyword has the same bytes
+     * @implNote a hit costs a comparison of the keywords and no allocation: repeated calls with the same keyword
+     * (the chunks of a message, encoding then decoding ...) build the table once
+     */
+    KeyTable keyTable(byte[] keyword) {
+        final var last = lastKeyTable;
+        if (last != null && Arrays.equals(last.keyword, keyword))
+            return last;
+        return lastKeyTable = newKeyTable(keyword);
+    }
+
+    /**
+     * <code>dst[dstOff + i] = src[srcOff + i] ^ key</code>
+     */
+    abstract void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = src[srcOff + i] ^ pad[padOff + i]</code>
+     */
+    abstract void xor(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff);
+
+    // ============================================================================================
+    // ======================================== SELECTION =========================================
+    // ============================================================================================
+
+    private static CipherEngine select(String name) {
+        return switch (name) {
+            case "scalar" -> new Scalar();
+            case "swar" -> new SwarCipherEngine();
+            case "vector" -> {
+                final var engine = vector();
+                yield (engine == null) ? Helper.fail("The vector engine needs '--add-modules jdk.incubator.vector'") : engine;
+            }
+            case "auto" -> {
+                final var engine = vector();
+                yield (engine == null) ? new SwarCipherEngine() : engine;
+            }
+            default -> Helper.fail("Unknown cipher engine : '%s'", name);
+        };
+    }
+
+    /**
+     * Load the vector engine reflectively, so this class still links when the incubator module is absent
+     * @return the vector engine, <code>null</code> if not available
+     */
+    private static CipherEngine vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            return (CipherEngine) Class.forName("ch.epfl.cs107.crypto.VectorCipherEngine")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= SCALAR ===========================================
+    // ============================================================================================
+
+    /** Byte at a time loops, used when nothing better is available and for the tails of the other engines */
+    static class Scalar extends CipherEngine {
+
+        @Override
+        String name() {
+            return "scalar";
+        }
+
+        @Override
+        void add(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = (byte) (src[srcOff + i] + key);
+        }
+
+        @Override
+        void addKeyword(byte[] src, int srcOff, int len, KeyTable keyword, int keyOff, int sign, byte[] dst, int dstOff) {
+            // Avoid the modulo on every byte, the key index is simply wrapped around
+            final int m = keyword.length();
+            for (int i = 0, k = keyOff % m; i < len; ++i) {
+                dst[dstOff + i] = (byte) (src[srcOff + i] + sign * keyword.keys[k]);
+                if (++k == m)
+                    k = 0;
+            }
+        }
+
+        @Override
+        int keyLanes() {
+            return 1;
+        }
+
+        @Override
+        void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = (byte) (src[srcOff + i] ^ key);
+        }
+
+        @Override
+        void xor(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = (byte) (src[srcOff + i] ^ pad[padOff + i]);
+        }
+    }
+
+}
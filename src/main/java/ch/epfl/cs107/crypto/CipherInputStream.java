@@ -0,0 +1,74 @@
+package ch.epfl.cs107.crypto;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream decoding (or encoding) the bytes read from another stream with a {@link StreamCipher}.
+ * <p>
+ * The bytes are transformed in the buffer of the caller, so reading from this stream
+ * doesn't allocate anything whatever the size of the underlying data.
+ */
+public final class CipherInputStream extends FilterInputStream {
+
+    private final StreamCipher cipher;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Build a stream applying the given cipher to the bytes read from <code>in</code>
+     * @param in stream to read from
+     * @param cipher cipher to apply to the read bytes
+     */
+    public CipherInputStream(InputStream in, StreamCipher cipher) {
+        super(in);
+        assert (in != null && cipher != null);
+        this.cipher = cipher;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final var n = read(single, 0, 1);
+        return (n < 0) ? -1 : Byte.toUnsignedInt(single[0]);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final var n = in.read(b, off, len);
+        if (n > 0)
+            cipher.process(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+        // The skipped bytes still have to go through the cipher to keep its state consistent
+        final var scratch = new byte[(int) Math.min(n, StreamCipher.CHUNK_SIZE)];
+        var skipped = 0L;
+        while (skipped < n) {
+            final var read = read(scratch, 0, (int) Math.min(n - skipped, scratch.length));
+            if (read < 0)
+                break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported, the state of the cipher cannot be rolled back
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
@@ -0,0 +1,49 @@
+package ch.epfl.cs107.crypto;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream encoding (or decoding) the bytes written to another stream with a {@link StreamCipher}.
+ * <p>
+ * The bytes of the caller are never modified, they are transformed through a fixed size
+ * buffer before being forwarded to the underlying stream.
+ */
+public final class CipherOutputStream extends FilterOutputStream {
+
+    private final StreamCipher cipher;
+    private final byte[] buffer = new byte[StreamCipher.CHUNK_SIZE];
+
+    /**
+     * Build a stream applying the given cipher to the bytes written to <code>out</code>
+     * @param out stream to write to
+     * @param cipher cipher to apply to the written bytes
+     */
+    public CipherOutputStream(OutputStream out, StreamCipher cipher) {
+        super(out);
+        assert (out != null && cipher != null);
+        this.cipher = cipher;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[0] = (byte) b;
+        cipher.process(buffer, 0, 1);
+        out.write(buffer, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        assert (b != null);
+        assert (0 <= off && 0 <= len && off <= b.length - len);
+        while (len > 0) {
+            final var n = Math.min(len, buffer.length);
+            cipher.process(b, off, n, buffer, 0);
+            out.write(buffer, 0, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+package ch.epfl.cs107.crypto;
+
+import ch.epfl.cs107.Helper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Chain of algorithms of {@link Encrypt} applied in a single pass over the data.
+ * <p>
+ * Calling for instance {@link Encrypt#vigenere(byte[], byte[])}, then {@link Encrypt#cbc(byte[], byte[])},
+ * then {@link Encrypt#xor(byte[], byte)} builds and fills an intermediate array at each stage.
+ * A pipeline instead runs all the stages on a chunk of {@link #CHUNK_SIZE} bytes (small enough to stay
+ * in the cache) before moving to the next chunk, and writes straight into the output.
+ * Decrypting applies the {@link Decrypt} inverses in the reverse order.
+ * <p>
+ * The result is the same as calling the stages one by one:
+ * <pre>
+ * final var pipeline = CipherPipeline.builder().vigenere(keyword).cbc(iv).xor(key).build();
+ * final var cipher = pipeline.encrypt(plainText);  // == Encrypt.xor(Encrypt.cbc(Encrypt.vigenere(plainText, keyword), iv), key)
+ * final var plain  = pipeline.decrypt(cipher);     // == plainText
+ * </pre>
+ * A pipeline with a {@link Builder#cbc(byte[]) cbc} or a {@link Builder#oneTimePad(byte[]) oneTimePad} stage
+ * holds key material that must never encrypt two messages: it encrypts a single one (a second
+ * {@link #encrypt(byte[])} or {@link #encryptor()} fails), and a new pipeline is built with fresh
+ * material for the next message. Decrypting is not limited.
+ */
+public final class CipherPipeline {
+
+    /** Number of bytes going through all the stages before moving to the next ones */
+    public static final int CHUNK_SIZE = 1 << 14;
+
+    /** Stages, in the encryption order */
+    private final List<Stage> stages;
+
+    /** Whether one of the stages holds material for a single message */
+    private final boolean singleUse;
+
+    /** Whether an encryptor was already built */
+    private final AtomicBoolean encrypted = new AtomicBoolean();
+
+    private CipherPipeline(List<Stage> stages) {
+        this.stages = List.copyOf(stages);
+        this.singleUse = stages.stream().anyMatch(Stage::singleUse);
+    }
+
+    /**
+     * @return a builder of an empty pipeline
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ============================================================================================
+    // ======================================== ENCRYPTION ========================================
+    // ============================================================================================
+
+    /**
+     * Encode a byte array with all the stages of the pipeline
+     * @implNote fails if the pipeline has a cbc or one-time pad stage and already encrypted a message
+     * @param plainText the byte array representing the message to encode
+     * @return an encoded byte array
+     */
+    public byte[] encrypt(byte[] plainText) {
+        assert (plainText != null);
+        final var cipher = new byte[plainText.length];
+        encryptor().process(plainText, 0, plainText.length, cipher, 0);
+        return cipher;
+    }
+
+    /**
+     * Encode a range of a byte array into a caller supplied array with all the stages of the pipeline
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding).
+     * Fails if the pipeline has a cbc or one-time pad stage and already encrypted a message
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public void encrypt(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        encryptor().process(src, srcOff, len, dst, dstOff);
+    }
+
+    /**
+     * @implNote with a cbc or one-time pad stage, the pipeline builds a single encryptor, for a single message:
+     * it cannot be {@link StreamCipher#reset() reset} and a second call fails
+     * @return a new stream cipher encoding with all the stages of the pipeline,
+     * to be used with {@link CipherInputStream}, {@link CipherOutputStream} or {@link CipherChannels}
+     */
+    public StreamCipher encryptor() {
+        if (singleUse && encrypted.getAndSet(true))
+            Helper.fail("This pipeline already encrypted a message with its iv or one-time pad, build a new one with fresh material");
+        final var ciphers = new StreamCipher[stages.size()];
+        for (int i = 0; i < ciphers.length; ++i)
+            ciphers[i] = stages.get(i).encryptor.get();
+        return new Fused(ciphers);
+    }
+
+    // ============================================================================================
+    // ======================================== DECRYPTION ========================================
+    // ============================================================================================
+
+    /**
+     * Decode a byte array encoded by this pipeline
+     * @param cipher Cipher message to decode
+     * @return decoded message
+     */
+    public byte[] decrypt(byte[] cipher) {
+        assert (cipher != null);
+        final var plainText = new byte[cipher.length];
+        decryptor().process(cipher, 0, cipher.length, plainText, 0);
+        return plainText;
+    }
+
+    /**
+     * Decode a range of a byte array encoded by this pipeline into a caller supplied array
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding)
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public void decrypt(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        decryptor().process(src, srcOff, len, dst, dstOff);
+    }
+
+    /**
+     * @implNote with a cbc stage, the decryptor cannot be {@link StreamCipher#reset() reset}:
+     * each message takes a new one
+     * @return a new stream cipher decoding what this pipeline encodes (the inverse stages in the reverse order)
+     */
+    public StreamCipher decryptor() {
+        final var ciphers = new StreamCipher[stages.size()];
+        for (int i = 0; i < ciphers.length; ++i)
+            ciphers[i] = stages.get(ciphers.length - 1 - i).decryptor.get();
+        return new Fused(ciphers);
+    }
+
+    // ============================================================================================
+    // ========================================= BUILDER ==========================================
+    // ============================================================================================
+
+    /**
+     * Builder of {@link CipherPipeline}, the stages being applied in the order they are added
+     */
+    public static final class Builder {
+
+        private final List<Stage> stages = new ArrayList<>();
+
+        private Builder(){}
+
+        /**
+         * Add a {@link Encrypt#caesar(byte[], byte)} stage
+         * @param key the byte corresponding to the char we use to shift
+         * @return this builder
+         */
+        public Builder caesar(byte key) {
+            return add(() -> StreamCipher.encryptCaesar(key), () -> StreamCipher.decryptCaesar(key), false);
+        }
+
+        /**
+         * Add a {@link Encrypt#vigenere(byte[], byte[])} stage
+         * @param keyword the byte array representing the key used to perform the shift
+         * @return this builder
+         */
+        public Builder vigenere(byte[] keyword) {
+            assert (keyword != null && keyword.length != 0);
+            final var key = keyword.clone();
+            return add(() -> StreamCipher.encryptVigenere(key), () -> StreamCipher.decryptVigenere(key), false);
+        }
+
+        /**
+         * Add a {@link Encrypt#cbc(byte[], byte[])} stage: the pipeline then encrypts a single message
+         * @param iv the pad of size BLOCKSIZE we use to start the chain encoding, fresh for each message
+         * @return this builder
+         */
+        public Builder cbc(byte[] iv) {
+            assert (iv != null && iv.length > 0);
+            final var pad = iv.clone();
+            return add(() -> StreamCipher.encryptCbc(pad), () -> StreamCipher.decryptCbc(pad), true);
+        }
+
+        /**
+         * Add a {@link Encrypt#xor(byte[], byte)} stage
+         * @param key the byte we will use to XOR
+         * @return this builder
+         */
+        public Builder xor(byte key) {
+            return add(() -> StreamCipher.encryptXor(key), () -> StreamCipher.decryptXor(key), false);
+        }
+
+        /**
+         * Add a {@link Encrypt#oneTimePad(byte[], byte[])} stage: the pipeline then encrypts a single message
+         * @param pad the one-time pad, at least as long as the message
+         * @return this builder
+         */
+        public Builder oneTimePad(byte[] pad) {
+            assert (pad != null);
+            final var copy = pad.clone();
+            return add(() -> StreamCipher.encryptOneTimePad(copy), () -> StreamCipher.decryptOneTimePad(copy), true);
+        }
+
+        /**
+         * @return the pipeline made of the stages added so far
+         */
+        public CipherPipeline build() {
+            return new CipherPipeline(stages);
+        }
+
+        private Builder add(Supplier<StreamCipher> encryptor, Supplier<StreamCipher> decryptor, boolean singleUse) {
+            stages.add(new Stage(encryptor, decryptor, singleUse));
+            return this;
+        }
+    }
+
+    // ============================================================================================
+    // ===================================== IMPLEMENTATIONS ======================================
+    // ============================================================================================
+
+    /**
+     * A stage builds fresh stream ciphers, since they keep the state of a single message
+     * (<code>singleUse</code> when its key material must encrypt a single message)
+     */
+    private record Stage(Supplier<StreamCipher> encryptor, Supplier<StreamCipher> decryptor, boolean singleUse) {}
+
+    /**
+     * Apply all the ciphers to a chunk before moving to the next one
+     * @implNote {@link #reset()} forwards to the stages, so fails with a cbc or one-time pad stage;
+     * {@link #reset(byte[])} is not supported since it would need material for each of them
+     */
+    private static final class Fused extends StreamCipher {
+
+        private final StreamCipher[] ciphers;
+
+        private Fused(StreamCipher[] ciphers) {
+            this.ciphers = ciphers;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            checkChunk(src, srcOff, len, dst, dstOff);
+            if (ciphers.length == 0) {
+                System.arraycopy(src, srcOff, dst, dstOff, len);
+                return;
+            }
+            for (int done = 0; done < len; done += CHUNK_SIZE) {
+                final int n = Math.min(CHUNK_SIZE, len - done);
+                //↓ The first stage reads the input, the other ones work in place on the output
+                ciphers[0].process(src, srcOff + done, n, dst, dstOff + done);
+                for (int i = 1; i < ciphers.length; ++i)
+                    ciphers[i].process(dst, dstOff + done, n);
+            }
+        }
+
+        @Override
+        public void reset() {
+            for (final var cipher : ciphers)
+                cipher.reset();
+        }
+
+        @Override
+        void finish() {
+            for (final var cipher : ciphers)
+                cipher.finish();
+        }
+    }
+
+}
@@ -0,0 +1,352 @@
+package ch.epfl.cs107.crypto;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Recovery of unknown keys by frequency analysis.
+ * <p>
+ * {@link Decrypt#caesar(byte[], byte)} and {@link Decrypt#xor(byte[], byte)} only have 256 possible keys:
+ * every key is tried (in parallel) and scored with a byte-frequency model, the best scores being the most
+ * likely keys. Only the histogram of a prefix of the cipher (at most {@link #SAMPLE_SIZE} bytes) is built,
+ * and every key is then scored from the histogram alone, so the cost doesn't grow with the size of the cipher.
+ * <p>
+ * A {@link Encrypt#vigenere(byte[], byte[])} cipher is a caesar cipher on every column (the bytes at the same
+ * position modulo the length of the keyword): the length of the keyword is the one whose columns look the most
+ * like plain texts (highest index of coincidence), then every column is solved as a caesar cipher.
+ * <p>
+ * A model gives the logarithm of the probability of every byte value in a plain text. {@link #ENGLISH} is
+ * the default one, {@link #model(byte[])} builds one from a reference text.
+ */
+public final class Cryptanalysis {
+
+    private Cryptanalysis(){}
+
+    /**
+     * Number of bytes of the cipher used to score the keys.
+     * Can be tuned with the <code>ch.epfl.cs107.crypto.analysis.sample</code> system property.
+     */
+    public static final int SAMPLE_SIZE = Integer.getInteger("ch.epfl.cs107.crypto.analysis.sample", 1 << 16);
+
+    /** Longest keyword tried by {@link #vigenere(byte[])} */
+    public static final int MAX_KEYWORD_LENGTH = 32;
+
+    /**
+     * Fraction of the best index of coincidence from which a shorter keyword length is preferred
+     * (the multiples of the keyword length have an index of coincidence as high as the length itself)
+     */
+    private static final double COINCIDENCE_TOLERANCE = 0.9;
+
+    /** Probability given to the bytes that never appear in the reference of a model */
+    private static final double UNSEEN = 1e-6;
+
+    /**
+     * Candidate key of an analysis
+     * @param key the candidate key
+     * @param score log-likelihood of the plain text decoded with this key, the higher the more likely
+     */
+    public record Candidate(byte key, double score) {}
+
+    /** Best scores first */
+    private static final Comparator<Candidate> RANKING = Comparator.comparingDouble(Candidate::score).reversed();
+
+    // ============================================================================================
+    // ========================================= MODELS ===========================================
+    // ============================================================================================
+
+    /** Frequencies (in %) of the letters in English texts, from 'a' to 'z' */
+    private static final double[] LETTERS = {
+            8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+            6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074
+    };
+
+    /**
+     * Model of English (UTF-8) texts: letters (mostly in lower case), spaces, punctuation and digits
+     */
+    public static final double[] ENGLISH = english();
+
+    private static double[] english() {
+        final var frequencies = new double[256];
+        for (int i = 0; i < LETTERS.length; ++i) {
+            frequencies['a' + i] = LETTERS[i];
+            frequencies['A' + i] = LETTERS[i] / 20;
+        }
+        frequencies[' '] = 18;
+        frequencies['\n'] = 1;
+        for (final var c : ".,'\"-".toCharArray())
+            frequencies[c] = 0.5;
+        for (final var c : ";:!?()".toCharArray())
+            frequencies[c] = 0.05;
+        for (int c = '0'; c <= '9'; ++c)
+            frequencies[c] = 0.05;
+        return logarithms(frequencies);
+    }
+
+    /**
+     * Build a model from the byte frequencies of a reference text
+     * @param reference text representative of the expected plain texts
+     * @return the logarithms of the probabilities of every byte value, indexed by the unsigned byte
+     */
+    public static double[] model(byte[] reference) {
+        assert (reference != null);
+        final var histogram = histogram(reference, 0, reference.length);
+        final var frequencies = new double[256];
+        for (int b = 0; b < 256; ++b)
+            frequencies[b] = histogram[b];
+        return logarithms(frequencies);
+    }
+
+    /**
+     * Normalize the given frequencies and take their logarithms
+     */
+    private static double[] logarithms(double[] frequencies) {
+        var total = 0.0;
+        for (final var f : frequencies)
+            total += f;
+        final var model = new double[frequencies.length];
+        for (int b = 0; b < model.length; ++b)
+            model[b] = Math.log(Math.max(frequencies[b] / total, UNSEEN));
+        return model;
+    }
+
+    // ============================================================================================
+    // ======================================== ANALYSES ==========================================
+    // ============================================================================================
+
+    /**
+     * Find the most likely keys of a cipher encoded with {@link Encrypt#caesar(byte[], byte)}, for English texts
+     * @param cipher the cipher to analyse
+     * @param k number of candidates to return
+     * @return the <code>k</code> most likely keys, best first
+     */
+    public static List<Candidate> caesar(byte[] cipher, int k) {
+        return caesar(cipher, k, ENGLISH, SAMPLE_SIZE);
+    }
+
+    /**
+     * Find the most likely keys of a cipher encoded with {@link Encrypt#caesar(byte[], byte)}
+     * @param cipher the cipher to analyse
+     * @param k number of candidates to return
+     * @param model logarithms of the byte probabilities of the plain texts (see {@link #model(byte[])})
+     * @param sampleSize number of bytes of the cipher to analyse
+     * @return the <code>k</code> most likely keys, best first
+     */
+    public static List<Candidate> caesar(byte[] cipher, int k, double[] model, int sampleSize) {
+        return rank(sample(cipher, sampleSize), k, model, false);
+    }
+
+    /**
+     * @param cipher a cipher encoded with {@link Encrypt#caesar(byte[], byte)} from an English text
+     * @return the most likely key
+     */
+    public static byte caesarKey(byte[] cipher) {
+        return caesar(cipher, 1).get(0).key();
+    }
+
+    /**
+     * Find the most likely keys of a cipher encoded with {@link Encrypt#xor(byte[], byte)}, for English texts
+     * @param cipher the cipher to analyse
+     * @param k number of candidates to return
+     * @return the <code>k</code> most likely keys, best first
+     */
+    public static List<Candidate> xor(byte[] cipher, int k) {
+        return xor(cipher, k, ENGLISH, SAMPLE_SIZE);
+    }
+
+    /**
+     * Find the most likely keys of a cipher encoded with {@link Encrypt#xor(byte[], byte)}
+     * @param cipher the cipher to analyse
+     * @param k number of candidates to return
+     * @param model logarithms of the byte probabilities of the plain texts (see {@link #model(byte[])})
+     * @param sampleSize number of bytes of the cipher to analyse
+     * @return the <code>k</code> most likely keys, best first
+     */
+    public static List<Candidate> xor(byte[] cipher, int k, double[] model, int sampleSize) {
+        return rank(sample(cipher, sampleSize), k, model, true);
+    }
+
+    /**
+     * @param cipher a cipher encoded with {@link Encrypt#xor(byte[], byte)} from an English text
+     * @return the most likely key
+     */
+    public static byte xorKey(byte[] cipher) {
+        return xor(cipher, 1).get(0).key();
+    }
+
+    /**
+     * Find the keyword of a cipher encoded with {@link Encrypt#vigenere(byte[], byte[])} from an English text,
+     * trying keywords of up to {@link #MAX_KEYWORD_LENGTH} bytes
+     * @param cipher the cipher to analyse
+     * @return the most likely keyword
+     */
+    public static byte[] vigenere(byte[] cipher) {
+        return vigenere(cipher, MAX_KEYWORD_LENGTH, ENGLISH, SAMPLE_SIZE);
+    }
+
+    /**
+     * Find the keyword of a cipher encoded with {@link Encrypt#vigenere(byte[], byte[])}
+     * @implNote on short ciphers the indices of coincidence are noisy, and the estimated length can be a
+     * multiple of the real one: the solved keyword is then the real one repeated, and is reduced to it
+     * @param cipher the cipher to analyse
+     * @param maxLength longest keyword to try
+     * @param model logarithms of the byte probabilities of the plain texts (see {@link #model(byte[])})
+     * @param sampleSize number of bytes of the cipher to analyse
+     * @return the most likely keyword, without repetition
+     */
+    public static byte[] vigenere(byte[] cipher, int maxLength, double[] model, int sampleSize) {
+        assert (model != null && model.length == 256);
+        final int length = vigenereKeywordLength(cipher, maxLength, sampleSize);
+        final var columns = columns(cipher, Math.min(cipher.length, sampleSize), length);
+        final var keyword = new byte[length];
+        IntStream.range(0, length).parallel()
+                .forEach(j -> keyword[j] = best(columns[j], model, false));
+        return Arrays.copyOf(keyword, period(keyword));
+    }
+
+    /**
+     * Estimate the length of the keyword of a cipher encoded with {@link Encrypt#vigenere(byte[], byte[])}.
+     * <p>
+     * The candidate lengths are tried in parallel, each one with a single pass over the sample.
+     * @param cipher the cipher to analyse
+     * @param maxLength longest keyword to try
+     * @param sampleSize number of bytes of the cipher to analyse
+     * @return the shortest length whose index of coincidence is close to the best one
+     */
+    public static int vigenereKeywordLength(byte[] cipher, int maxLength, int sampleSize) {
+        assert (cipher != null);
+        assert (maxLength > 0 && sampleSize > 0);
+        final int len = Math.min(cipher.length, sampleSize);
+        final int max = Math.max(1, Math.min(maxLength, len / 2));
+        final var coincidences = new double[max + 1];
+        IntStream.rangeClosed(1, max).parallel()
+                .forEach(m -> coincidences[m] = coincidence(columns(cipher, len, m)));
+        var best = 0.0;
+        for (int m = 1; m <= max; ++m)
+            best = Math.max(best, coincidences[m]);
+        for (int m = 1; m <= max; ++m)
+            if (coincidences[m] >= COINCIDENCE_TOLERANCE * best)
+                return m;
+        return 1;
+    }
+
+    // ============================================================================================
+    // ======================================== HELPERS ===========================================
+    // ============================================================================================
+
+    /**
+     * @return the length of the shortest prefix of the keyword whose repetition gives the whole keyword
+     */
+    private static int period(byte[] keyword) {
+        search:
+        for (int d = 1; d < keyword.length; ++d) {
+            if (keyword.length % d != 0)
+                continue;
+            for (int j = d; j < keyword.length; ++j)
+                if (keyword[j] != keyword[j - d])
+                    continue search;
+            return d;
+        }
+        return keyword.length;
+    }
+
+    /**
+     * Histogram of the prefix of the cipher
+     */
+    private static int[] sample(byte[] cipher, int sampleSize) {
+        assert (cipher != null);
+        assert (sampleSize > 0);
+        return histogram(cipher, 0, Math.min(cipher.length, sampleSize));
+    }
+
+    /**
+     * Count the occurrences of every byte value in a range
+     * @return the counts, indexed by the unsigned byte
+     */
+    static int[] histogram(byte[] src, int off, int len) {
+        Encrypt.checkRange(src, off, len);
+        final var histogram = new int[256];
+        for (int i = off; i < off + len; ++i)
+            ++histogram[src[i] & 0xFF];
+        return histogram;
+    }
+
+    /**
+     * Histograms of the <code>m</code> columns of the first <code>len</code> bytes, in a single pass
+     * @return the counts of every column, indexed by the column and the unsigned byte
+     */
+    static int[][] columns(byte[] src, int len, int m) {
+        final var columns = new int[m][256];
+        int column = 0;
+        for (int i = 0; i < len; ++i) {
+            ++columns[column][src[i] & 0xFF];
+            if (++column == m)
+                column = 0;
+        }
+        return columns;
+    }
+
+    /**
+     * Average index of coincidence of the columns: the probability that two bytes of a column are equal
+     */
+    private static double coincidence(int[][] columns) {
+        var sum = 0.0;
+        for (final var histogram : columns) {
+            long n = 0;
+            long pairs = 0;
+            for (final var count : histogram) {
+                n += count;
+                pairs += (long) count * (count - 1);
+            }
+            if (n > 1)
+                sum += (double) pairs / (n * (n - 1));
+        }
+        return sum / columns.length;
+    }
+
+    /**
+     * @return the key with the best score, computed sequentially
+     */
+    private static byte best(int[] histogram, double[] model, boolean xor) {
+        int best = 0;
+        var bestScore = Double.NEGATIVE_INFINITY;
+        for (int key = 0; key < 256; ++key) {
+            final var score = score(histogram, model, (byte) key, xor);
+            if (score > bestScore) {
+                bestScore = score;
+                best = key;
+            }
+        }
+        return (byte) best;
+    }
+
+    /**
+     * Score the 256 keys in parallel and keep the <code>k</code> best ones
+     * @param xor whether the keys are xor keys, or caesar keys
+     */
+    static List<Candidate> rank(int[] histogram, int k, double[] model, boolean xor) {
+        assert (model != null && model.length == 256);
+        assert (k > 0 && k <= 256);
+        return IntStream.range(0, 256).parallel()
+                .mapToObj(key -> new Candidate((byte) key, score(histogram, model, (byte) key, xor)))
+                .sorted(RANKING)
+                .limit(k)
+                .toList();
+    }
+
+    /**
+     * Log-likelihood of the plain text whose cipher has the given histogram, decoded with the given key
+     */
+    static double score(int[] histogram, double[] model, byte key, boolean xor) {
+        var score = 0.0;
+        for (int b = 0; b < 256; ++b) {
+            if (histogram[b] == 0)
+                continue;
+            final int plain = xor ? b ^ (key & 0xFF) : (b - key) & 0xFF;
+            score += histogram[b] * model[plain];
+        }
+        return score;
+    }
+
+}
@@ -2,6 +2,8 @@ package ch.epfl.cs107.crypto;
 
 import ch.epfl.cs107.Helper;
 
+import java.nio.ByteBuffer;
+
 import static ch.epfl.cs107.utils.Text.*;
 import static ch.epfl.cs107.utils.Image.*;
 import static ch.epfl.cs107.utils.Bit.*;
@@ -13,6 +15,9 @@ import static ch.epfl.cs107.Main.*;
 
 /**
  * <b>Task 2: </b>Utility class to decrypt a given cipher text.
+ * <p>
+ * As in {@link Encrypt}, every algorithm has allocation free overloads writing into a caller
+ * supplied <code>byte[]</code> range or {@link ByteBuffer}, and in place versions.
  *
  * @author Hamza REMMAL (hamza.remmal@epfl.ch)
  * @version 1.0.0
@@ -39,6 +44,52 @@ public final class Decrypt {
         return Encrypt.caesar(cipher, (byte) (-1 * key));
     }
 
+    /**
+     * Method to decode a range of a byte array into a caller supplied array using a single character key
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding)
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param key Key to decode with
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public static void caesar(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        Encrypt.caesar(src, srcOff, len, (byte) (-1 * key), dst, dstOff);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a buffer into another buffer using a single character key.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the cipher to decode
+     * @param key Key to decode with
+     * @param dst buffer receiving the decoded message
+     */
+    public static void caesar(ByteBuffer src, byte key, ByteBuffer dst) {
+        Encrypt.caesar(src, (byte) (-1 * key), dst);
+    }
+
+    /**
+     * Method to decode a range of a byte array in place using a single character key
+     * @param buffer array containing the cipher, overwritten with the decoded message
+     * @param off offset of the cipher in <code>buffer</code>
+     * @param len length of the cipher
+     * @param key Key to decode with
+     */
+    public static void caesarInPlace(byte[] buffer, int off, int len, byte key) {
+        Encrypt.caesarInPlace(buffer, off, len, (byte) (-1 * key));
+    }
+
+    /**
+     * Method to decode the remaining bytes of a buffer in place using a single character key.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the cipher, overwritten with the decoded message
+     * @param key Key to decode with
+     */
+    public static void caesarInPlace(ByteBuffer buffer, byte key) {
+        Encrypt.caesarInPlace(buffer, (byte) (-1 * key));
+    }
+
     // ============================================================================================
     // =============================== VIGENERE'S ENCRYPTION ======================================
     // ============================================================================================
@@ -54,12 +105,79 @@ public final class Decrypt {
         assert (keyword!=null && keyword.length!=0);
 
         byte[] plainText = new byte[cipher.length];
-        for (int i = 0; i < cipher.length; ++i)
-            plainText[i] = (byte) (cipher[i] - keyword[i % keyword.length]);
+        final var engine = CipherEngine.current();
+        engine.addKeyword(cipher, 0, cipher.length, engine.keyTable(keyword), 0, -1, plainText, 0);
 
         return plainText;
     }
 
+    /**
+     * Method to decode a range of a byte array into a caller supplied array using a byte array keyword.
+     * The keyword starts over at the beginning of the range.
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding)
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param keyword Key to decode with
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public static void vigenere(byte[] src, int srcOff, int len, byte[] keyword, byte[] dst, int dstOff) {
+        Encrypt.checkRange(src, srcOff, len);
+        Encrypt.checkRange(dst, dstOff, len);
+        assert (keyword!=null && keyword.length!=0);
+
+        final var engine = CipherEngine.current();
+        engine.addKeyword(src, srcOff, len, engine.keyTable(keyword), 0, -1, dst, dstOff);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a buffer into another buffer using a byte array keyword.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the cipher to decode
+     * @param keyword Key to decode with
+     * @param dst buffer receiving the decoded message
+     */
+    public static void vigenere(ByteBuffer src, byte[] keyword, ByteBuffer dst) {
+        Encrypt.checkBuffers(src, dst);
+        assert (keyword!=null && keyword.length!=0);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray())
+            vigenere(src.array(), src.arrayOffset() + srcPos, len, keyword, dst.array(), dst.arrayOffset() + dstPos);
+        else
+            for (int i = 0, k = 0; i < len; ++i) {
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) - keyword[k]));
+                if (++k == keyword.length)
+                    k = 0;
+            }
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method to decode a range of a byte array in place using a byte array keyword
+     * @param buffer array containing the cipher, overwritten with the decoded message
+     * @param off offset of the cipher in <code>buffer</code>
+     * @param len length of the cipher
+     * @param keyword Key to decode with
+     */
+    public static void vigenereInPlace(byte[] buffer, int off, int len, byte[] keyword) {
+        vigenere(buffer, off, len, keyword, buffer, off);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a buffer in place using a byte array keyword.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the cipher, overwritten with the decoded message
+     * @param keyword Key to decode with
+     */
+    public static void vigenereInPlace(ByteBuffer buffer, byte[] keyword) {
+        vigenere(buffer, keyword, buffer.duplicate());
+    }
+
     // ============================================================================================
     // =================================== CBC'S ENCRYPTION =======================================
     // ============================================================================================
@@ -77,22 +195,154 @@ public final class Decrypt {
         assert (T > 0);
 
         byte[] plainText = new byte[cipher.length];
+        cbc(cipher, 0, cipher.length, iv, plainText, 0);
+
+        return plainText;
+    }
+
+    /**
+     * Method to decode a range of cbc-encrypted cipher into a caller supplied array
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding),
+     * otherwise the two ranges must not overlap.
+     * When decoding into another array, the whole range is XORed against itself shifted by one block
+     * by the {@link CipherEngine}. In place, the blocks are decoded from the last one to the first one,
+     * so that a cipher block is never overwritten while it is still needed to decode the next one.
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public static void cbc(byte[] src, int srcOff, int len, byte[] iv, byte[] dst, int dstOff) {
+        Encrypt.checkRange(src, srcOff, len);
+        Encrypt.checkRange(dst, dstOff, len);
+        assert (iv != null);
+        int T = iv.length;
+        assert (T > 0);
 
-        int numberOfBlocks = (int) Math.ceil((double) plainText.length/T); //+ .length%T; //.length < T) ? 1 : plainText.length / T;
-        for (int i = 0; i < numberOfBlocks; ++i) {
-            for (int j = 0; (j < T) && (T*i + j < cipher.length); ++j)
-                if (i == 0)
-                    //A. The first block is decrypted using the original IV
-                    plainText[j] = (byte) (cipher[j] ^ iv[j]);
-                else
-                    //B. All blocks except the first are then decrypted using the cipher's previous block
-                    plainText[T*i + j] = (byte) (cipher[T*i + j] ^ cipher[T*(i-1) + j]);
+        if (src != dst) {
+            final var engine = CipherEngine.current();
+            //A. The first block is decrypted using the original IV
+            engine.xor(src, srcOff, Math.min(T, len), iv, 0, dst, dstOff);
+            //B. All blocks except the first are then decrypted using the cipher's previous block
+            if (len > T)
+                engine.xor(src, srcOff + T, len - T, src, srcOff, dst, dstOff + T);
+            return;
+        }
+        //↓ All blocks except the first are decrypted using the cipher's previous block ...
+        for (int i = len - 1; i >= T; --i)
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ src[srcOff + i - T]);
+        //↓ ... and the first block is decrypted using the original IV
+        for (int j = Math.min(T, len) - 1; j >= 0; --j)
+            dst[dstOff + j] = (byte) (src[srcOff + j] ^ iv[j]);
+    }
 
+    /**
+     * Method to decode the remaining bytes of a cbc-encrypted buffer into another buffer.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the cipher to decode
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param dst buffer receiving the decoded message
+     */
+    public static void cbc(ByteBuffer src, byte[] iv, ByteBuffer dst) {
+        Encrypt.checkBuffers(src, dst);
+        assert (iv != null);
+        int T = iv.length;
+        assert (T > 0);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray()) {
+            cbc(src.array(), src.arrayOffset() + srcPos, len, iv, dst.array(), dst.arrayOffset() + dstPos);
+        } else {
+            for (int i = len - 1; i >= T; --i)
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) ^ src.get(srcPos + i - T)));
+            for (int j = Math.min(T, len) - 1; j >= 0; --j)
+                dst.put(dstPos + j, (byte) (src.get(srcPos + j) ^ iv[j]));
         }
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
 
+    /**
+     * Method to decode a range of cbc-encrypted cipher in place
+     * @param buffer array containing the cipher, overwritten with the decoded message
+     * @param off offset of the cipher in <code>buffer</code>
+     * @param len length of the cipher
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbcInPlace(byte[] buffer, int off, int len, byte[] iv) {
+        cbc(buffer, off, len, iv, buffer, off);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a cbc-encrypted buffer in place.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the cipher, overwritten with the decoded message
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbcInPlace(ByteBuffer buffer, byte[] iv) {
+        cbc(buffer, iv, buffer.duplicate());
+    }
+
+    /**
+     * Size (in bytes) from which {@link #cbcParallel(byte[], byte[])} decodes on several threads.
+     * Can be tuned with the <code>ch.epfl.cs107.crypto.cbc.threshold</code> system property.
+     */
+    public static final int CBC_PARALLEL_THRESHOLD = Integer.getInteger("ch.epfl.cs107.crypto.cbc.threshold", 1 << 20);
+
+    /**
+     * Method to decode cbc-encrypted ciphers on all the cores of the common {@link java.util.concurrent.ForkJoinPool}.
+     * Ciphers shorter than {@link #CBC_PARALLEL_THRESHOLD} are decoded sequentially.
+     * @param cipher message to decode
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @return decoded message
+     */
+    public static byte[] cbcParallel(byte[] cipher, byte[] iv) {
+        return cbcParallel(cipher, iv, CBC_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Method to decode cbc-encrypted ciphers on all the cores of the common {@link java.util.concurrent.ForkJoinPool}
+     * @param cipher message to decode
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param threshold size (in bytes) under which the cipher is decoded sequentially
+     * @return decoded message
+     */
+    public static byte[] cbcParallel(byte[] cipher, byte[] iv, int threshold) {
+        assert (cipher != null);
+
+        byte[] plainText = new byte[cipher.length];
+        cbcParallel(cipher, 0, cipher.length, iv, plainText, 0, threshold);
         return plainText;
     }
 
+    /**
+     * Method to decode a range of cbc-encrypted cipher into a caller supplied array, on all the cores
+     * of the common {@link java.util.concurrent.ForkJoinPool}
+     * @implNote Unlike {@link #cbc(byte[], int, int, byte[], byte[], int)}, the two ranges must not overlap
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     * @param threshold size (in bytes) under which the cipher is decoded sequentially
+     */
+    public static void cbcParallel(byte[] src, int srcOff, int len, byte[] iv, byte[] dst, int dstOff, int threshold) {
+        Encrypt.checkRange(src, srcOff, len);
+        Encrypt.checkRange(dst, dstOff, len);
+        assert (iv != null && iv.length > 0);
+        assert (threshold >= 0);
+
+        if (len < threshold)
+            cbc(src, srcOff, len, iv, dst, dstOff);
+        else
+            new CbcDecryptTask(src, srcOff, iv, dst, dstOff, 0, len).invoke();
+    }
+
     // ============================================================================================
     // =================================== XOR'S ENCRYPTION =======================================
     // ============================================================================================
@@ -108,6 +358,52 @@ public final class Decrypt {
         return Encrypt.xor(cipher, key);
     }
 
+    /**
+     * Method to decode a range of xor-encrypted cipher into a caller supplied array
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding)
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param key the byte we will use to XOR
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public static void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        Encrypt.xor(src, srcOff, len, key, dst, dstOff);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a xor-encrypted buffer into another buffer.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the cipher to decode
+     * @param key the byte we will use to XOR
+     * @param dst buffer receiving the decoded message
+     */
+    public static void xor(ByteBuffer src, byte key, ByteBuffer dst) {
+        Encrypt.xor(src, key, dst);
+    }
+
+    /**
+     * Method to decode a range of xor-encrypted cipher in place
+     * @param buffer array containing the cipher, overwritten with the decoded message
+     * @param off offset of the cipher in <code>buffer</code>
+     * @param len length of the cipher
+     * @param key the byte we will use to XOR
+     */
+    public static void xorInPlace(byte[] buffer, int off, int len, byte key) {
+        Encrypt.xorInPlace(buffer, off, len, key);
+    }
+
+    /**
+     * Method to decode the remaining bytes of a xor-encrypted buffer in place.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the cipher, overwritten with the decoded message
+     * @param key the byte we will use to XOR
+     */
+    public static void xorInPlace(ByteBuffer buffer, byte key) {
+        Encrypt.xorInPlace(buffer, key);
+    }
+
     // ============================================================================================
     // =================================== ONETIME'S PAD ENCRYPTION ===============================
     // ============================================================================================
@@ -124,4 +420,52 @@ public final class Decrypt {
         return Encrypt.oneTimePad(cipher, pad);
     }
 
+    /**
+     * Method to decode a range of otp-encrypted cipher into a caller supplied array
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place decoding)
+     * @param src array containing the cipher to decode
+     * @param srcOff offset of the cipher in <code>src</code>
+     * @param len length of the cipher
+     * @param pad array containing the one-time pad
+     * @param padOff offset of the one-time pad in <code>pad</code>
+     * @param dst array receiving the decoded message
+     * @param dstOff offset of the decoded message in <code>dst</code>
+     */
+    public static void oneTimePad(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff) {
+        Encrypt.oneTimePad(src, srcOff, len, pad, padOff, dst, dstOff);
+    }
+
+    /**
+     * Method to decode the remaining bytes of an otp-encrypted buffer into another buffer.
+     * The positions of the three buffers are moved past the processed bytes.
+     * @param src buffer containing the cipher to decode
+     * @param pad buffer containing the one-time pad
+     * @param dst buffer receiving the decoded message
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer pad, ByteBuffer dst) {
+        Encrypt.oneTimePad(src, pad, dst);
+    }
+
+    /**
+     * Method to decode a range of otp-encrypted cipher in place
+     * @param buffer array containing the cipher, overwritten with the decoded message
+     * @param off offset of the cipher in <code>buffer</code>
+     * @param len length of the cipher
+     * @param pad array containing the one-time pad
+     * @param padOff offset of the one-time pad in <code>pad</code>
+     */
+    public static void oneTimePadInPlace(byte[] buffer, int off, int len, byte[] pad, int padOff) {
+        Encrypt.oneTimePadInPlace(buffer, off, len, pad, padOff);
+    }
+
+    /**
+     * Method to decode the remaining bytes of an otp-encrypted buffer in place.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param buffer buffer containing the cipher, overwritten with the decoded message
+     * @param pad buffer containing the one-time pad
+     */
+    public static void oneTimePadInPlace(ByteBuffer buffer, ByteBuffer pad) {
+        Encrypt.oneTimePadInPlace(buffer, pad);
+    }
+
 }
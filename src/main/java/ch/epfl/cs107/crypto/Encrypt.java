@@ -2,6 +2,8 @@ package ch.epfl.cs107.crypto;
 
 import ch.epfl.cs107.Helper;
 
+import java.nio.ByteBuffer;
+
 import static ch.epfl.cs107.utils.Text.*;
 import static ch.epfl.cs107.utils.Image.*;
 import static ch.epfl.cs107.utils.Bit.*;
@@ -13,6 +15,12 @@ import static ch.epfl.cs107.Main.*;
 
 /**
  * <b>Task 2: </b>Utility class to encrypt a given plain text.
+ * <p>
+ * Besides the methods returning a new array, every algorithm has overloads writing into
+ * a caller supplied range of a <code>byte[]</code> or into a {@link ByteBuffer} (heap or direct),
+ * and in place versions. These overloads don't allocate anything.
+ * <p>
+ * The byte loops are run by a {@link CipherEngine}, vectorized when the Vector API is available.
  *
  * @author Hamza REMMAL (hamza.remmal@epfl.ch)
  * @version 1.0.0
@@ -39,12 +47,71 @@ public final class Encrypt {
         assert (plainText != null);
 
         byte[] cipher = new byte[plainText.length];
-        for (int i = 0; i < plainText.length; ++i)
-            cipher[i] = (byte) (plainText[i] + key);
+        CipherEngine.current().add(plainText, 0, plainText.length, key, cipher, 0);
 
         return cipher;
     }
 
+    /**
+     * Method to encode a range of a byte array into a caller supplied array using a single character key
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding)
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param key the byte corresponding to the char we use to shift
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public static void caesar(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        checkRange(src, srcOff, len);
+        checkRange(dst, dstOff, len);
+
+        CipherEngine.current().add(src, srcOff, len, key, dst, dstOff);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer into another buffer using a single character key.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the message to encode
+     * @param key the byte corresponding to the char we use to shift
+     * @param dst buffer receiving the encoded message
+     */
+    public static void caesar(ByteBuffer src, byte key, ByteBuffer dst) {
+        checkBuffers(src, dst);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray())
+            caesar(src.array(), src.arrayOffset() + srcPos, len, key, dst.array(), dst.arrayOffset() + dstPos);
+        else
+            for (int i = 0; i < len; ++i)
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) + key));
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method to encode a range of a byte array in place using a single character key
+     * @param buffer array containing the message, overwritten with the encoded message
+     * @param off offset of the message in <code>buffer</code>
+     * @param len length of the message
+     * @param key the byte corresponding to the char we use to shift
+     */
+    public static void caesarInPlace(byte[] buffer, int off, int len, byte key) {
+        caesar(buffer, off, len, key, buffer, off);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer in place using a single character key.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the message, overwritten with the encoded message
+     * @param key the byte corresponding to the char we use to shift
+     */
+    public static void caesarInPlace(ByteBuffer buffer, byte key) {
+        caesar(buffer, key, buffer.duplicate());
+    }
+
     // ============================================================================================
     // =============================== VIGENERE'S ENCRYPTION ======================================
     // ============================================================================================
@@ -62,13 +129,80 @@ public final class Encrypt {
         assert (keyword!=null && keyword.length!=0);
 
         byte[] cipher = new byte[plainText.length];
-        for (int i = 0; i < plainText.length; ++i)
-            cipher[i] = (byte) (plainText[i] + keyword[i % keyword.length]);
-            //↑The modulo operator enables us to cycle through the characters in the keyword
+        final var engine = CipherEngine.current();
+        //↓ The engine cycles through the characters in the keyword
+        engine.addKeyword(plainText, 0, plainText.length, engine.keyTable(keyword), 0, 1, cipher, 0);
 
         return cipher;
     }
 
+    /**
+     * Method to encode a range of a byte array into a caller supplied array using a byte array keyword.
+     * The keyword starts over at the beginning of the range.
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding)
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param keyword the byte array representing the key used to perform the shift
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public static void vigenere(byte[] src, int srcOff, int len, byte[] keyword, byte[] dst, int dstOff) {
+        checkRange(src, srcOff, len);
+        checkRange(dst, dstOff, len);
+        assert (keyword!=null && keyword.length!=0);
+
+        final var engine = CipherEngine.current();
+        engine.addKeyword(src, srcOff, len, engine.keyTable(keyword), 0, 1, dst, dstOff);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer into another buffer using a byte array keyword.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the message to encode
+     * @param keyword the byte array representing the key used to perform the shift
+     * @param dst buffer receiving the encoded message
+     */
+    public static void vigenere(ByteBuffer src, byte[] keyword, ByteBuffer dst) {
+        checkBuffers(src, dst);
+        assert (keyword!=null && keyword.length!=0);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray())
+            vigenere(src.array(), src.arrayOffset() + srcPos, len, keyword, dst.array(), dst.arrayOffset() + dstPos);
+        else
+            for (int i = 0, k = 0; i < len; ++i) {
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) + keyword[k]));
+                if (++k == keyword.length)
+                    k = 0;
+            }
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method to encode a range of a byte array in place using a byte array keyword
+     * @param buffer array containing the message, overwritten with the encoded message
+     * @param off offset of the message in <code>buffer</code>
+     * @param len length of the message
+     * @param keyword the byte array representing the key used to perform the shift
+     */
+    public static void vigenereInPlace(byte[] buffer, int off, int len, byte[] keyword) {
+        vigenere(buffer, off, len, keyword, buffer, off);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer in place using a byte array keyword.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the message, overwritten with the encoded message
+     * @param keyword the byte array representing the key used to perform the shift
+     */
+    public static void vigenereInPlace(ByteBuffer buffer, byte[] keyword) {
+        vigenere(buffer, keyword, buffer.duplicate());
+    }
+
     // ============================================================================================
     // =================================== CBC'S ENCRYPTION =======================================
     // ============================================================================================
@@ -85,24 +219,96 @@ public final class Encrypt {
         int T = iv.length;
         assert (T > 0);
 
-        byte[] pad = iv.clone(); //← Avoid modifying arguments
         byte[] cipher = new byte[plainText.length];
-        //↓ We want the loop to run once per whole block; +1 if some characters smaller than a block remain
-        int numberOfBlocks = (int) Math.ceil((double) plainText.length/T);
-        //↓1. Iterate over the blocks
-        for (int i = 0; i < numberOfBlocks; ++i) {
-            //↓2. Iterate over the characters in block i (making sure you don't go out of bounds for the last block)
-            for (int j = 0; (j < T) && (T*i + j < plainText.length); ++j) {
-                cipher[T*i + j] = (byte) (plainText[T*i + j] ^ pad[j]);
-                //↓ Once the pad's j'th coordinate has been used to encrypt the i'th block's j'th coordinate,
-                // it can be replaced on the fly with the newly found value for the next iteration of i
-                pad[j] = cipher[T*i + j];
-            }
-        }
+        cbc(plainText, 0, plainText.length, iv, cipher, 0);
 
         return cipher;
     }
 
+    /**
+     * Method applying the chain block encoding on a range of a byte array, into a caller supplied array.
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding),
+     * otherwise the two ranges must not overlap.
+     * No copy of the pad is needed: the pad of a block is the previous block of <code>dst</code>.
+     * Whole blocks are XORed against their pad by the {@link CipherEngine} (8 bytes or more at a time).
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public static void cbc(byte[] src, int srcOff, int len, byte[] iv, byte[] dst, int dstOff) {
+        checkRange(src, srcOff, len);
+        checkRange(dst, dstOff, len);
+        assert (iv != null);
+        int T = iv.length;
+        assert (T > 0);
+
+        if (T < CBC_MIN_BLOCK) {
+            //↓ Blocks too small to be worth a kernel call
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = (byte) (src[srcOff + i] ^ ((i < T) ? iv[i] : dst[dstOff + i - T]));
+            return;
+        }
+        final var engine = CipherEngine.current();
+        //↓ The first block is chained with the iv ...
+        engine.xor(src, srcOff, Math.min(T, len), iv, 0, dst, dstOff);
+        //↓ ... and the following ones with the cipher of the previous block
+        for (int i = T; i < len; i += T)
+            engine.xor(src, srcOff + i, Math.min(T, len - i), dst, dstOff + i - T, dst, dstOff + i);
+    }
+
+    /**
+     * Method applying the chain block encoding on the remaining bytes of a buffer, into another buffer.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the message to encode
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @param dst buffer receiving the encoded message
+     */
+    public static void cbc(ByteBuffer src, byte[] iv, ByteBuffer dst) {
+        checkBuffers(src, dst);
+        assert (iv != null);
+        int T = iv.length;
+        assert (T > 0);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray()) {
+            cbc(src.array(), src.arrayOffset() + srcPos, len, iv, dst.array(), dst.arrayOffset() + dstPos);
+        } else {
+            final int first = Math.min(T, len);
+            for (int j = 0; j < first; ++j)
+                dst.put(dstPos + j, (byte) (src.get(srcPos + j) ^ iv[j]));
+            for (int i = T; i < len; ++i)
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) ^ dst.get(dstPos + i - T)));
+        }
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method applying the chain block encoding on a range of a byte array, in place
+     * @param buffer array containing the message, overwritten with the encoded message
+     * @param off offset of the message in <code>buffer</code>
+     * @param len length of the message
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbcInPlace(byte[] buffer, int off, int len, byte[] iv) {
+        cbc(buffer, off, len, iv, buffer, off);
+    }
+
+    /**
+     * Method applying the chain block encoding on the remaining bytes of a buffer, in place.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the message, overwritten with the encoded message
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbcInPlace(ByteBuffer buffer, byte[] iv) {
+        cbc(buffer, iv, buffer.duplicate());
+    }
+
     // ============================================================================================
     // =================================== XOR'S ENCRYPTION =======================================
     // ============================================================================================
@@ -118,12 +324,71 @@ public final class Encrypt {
         // No assertion is needed on `key` because it's a primitive type and thus can't be used with invalid input
 
         byte[] cipher = new byte[plainText.length];
-        for (int i = 0; i < plainText.length; ++i)
-            cipher[i] = (byte) (plainText[i] ^ key);
+        CipherEngine.current().xor(plainText, 0, plainText.length, key, cipher, 0);
 
         return cipher;
     }
 
+    /**
+     * Method to encode a range of a byte array into a caller supplied array using a XOR with a single byte long key
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding)
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param key the byte we will use to XOR
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public static void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        checkRange(src, srcOff, len);
+        checkRange(dst, dstOff, len);
+
+        CipherEngine.current().xor(src, srcOff, len, key, dst, dstOff);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer into another buffer using a XOR with a single byte long key.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param src buffer containing the message to encode
+     * @param key the byte we will use to XOR
+     * @param dst buffer receiving the encoded message
+     */
+    public static void xor(ByteBuffer src, byte key, ByteBuffer dst) {
+        checkBuffers(src, dst);
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray())
+            xor(src.array(), src.arrayOffset() + srcPos, len, key, dst.array(), dst.arrayOffset() + dstPos);
+        else
+            for (int i = 0; i < len; ++i)
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) ^ key));
+        src.position(srcPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method to encode a range of a byte array in place using a XOR with a single byte long key
+     * @param buffer array containing the message, overwritten with the encoded message
+     * @param off offset of the message in <code>buffer</code>
+     * @param len length of the message
+     * @param key the byte we will use to XOR
+     */
+    public static void xorInPlace(byte[] buffer, int off, int len, byte key) {
+        xor(buffer, off, len, key, buffer, off);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer in place using a XOR with a single byte long key.
+     * The position of the buffer is moved to its limit.
+     * @param buffer buffer containing the message, overwritten with the encoded message
+     * @param key the byte we will use to XOR
+     */
+    public static void xorInPlace(ByteBuffer buffer, byte key) {
+        xor(buffer, key, buffer.duplicate());
+    }
+
     // ============================================================================================
     // =================================== ONETIME'S PAD ENCRYPTION ===============================
     // ============================================================================================
@@ -140,8 +405,7 @@ public final class Encrypt {
         assert (pad!=null && pad.length==plainText.length);
 
         byte[] cipher = new byte[plainText.length];
-        for (int i = 0; i < plainText.length; ++i)
-            cipher[i] = (byte) (plainText[i] ^ pad[i]);
+        CipherEngine.current().xor(plainText, 0, plainText.length, pad, 0, cipher, 0);
 
         return cipher;
     }
@@ -155,10 +419,101 @@ public final class Encrypt {
     public static void oneTimePad(byte[] plainText, byte[] pad, byte[] result) {
         assert (result != null);
         assert (plainText!=null && plainText.length==result.length);
-        assert (pad!=null && pad.length!=plainText.length);
+        assert (pad!=null && pad.length==plainText.length);
+
+        CipherEngine.current().xor(plainText, 0, plainText.length, pad, 0, result, 0);
+    }
 
-        for (int i = 0; i < plainText.length; ++i)
-            result[i] = (byte) (plainText[i] ^ pad[i]);
+    /**
+     * Method to encode a range of a byte array into a caller supplied array using a range of a one-time pad
+     * @implNote <code>dst</code> can be <code>src</code> with <code>dstOff == srcOff</code> (in place encoding)
+     * @param src array containing the message to encode
+     * @param srcOff offset of the message in <code>src</code>
+     * @param len length of the message
+     * @param pad array containing the one-time pad
+     * @param padOff offset of the one-time pad in <code>pad</code>
+     * @param dst array receiving the encoded message
+     * @param dstOff offset of the encoded message in <code>dst</code>
+     */
+    public static void oneTimePad(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff) {
+        checkRange(src, srcOff, len);
+        checkRange(pad, padOff, len);
+        checkRange(dst, dstOff, len);
+
+        CipherEngine.current().xor(src, srcOff, len, pad, padOff, dst, dstOff);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer into another buffer using a one-time pad buffer.
+     * The positions of the three buffers are moved past the processed bytes.
+     * @param src buffer containing the message to encode
+     * @param pad buffer containing the one-time pad
+     * @param dst buffer receiving the encoded message
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer pad, ByteBuffer dst) {
+        checkBuffers(src, dst);
+        assert (pad != null && pad.remaining() >= src.remaining());
+
+        final int len = src.remaining();
+        final int srcPos = src.position();
+        final int padPos = pad.position();
+        final int dstPos = dst.position();
+        if (src.hasArray() && pad.hasArray() && dst.hasArray())
+            oneTimePad(src.array(), src.arrayOffset() + srcPos, len,
+                    pad.array(), pad.arrayOffset() + padPos,
+                    dst.array(), dst.arrayOffset() + dstPos);
+        else
+            for (int i = 0; i < len; ++i)
+                dst.put(dstPos + i, (byte) (src.get(srcPos + i) ^ pad.get(padPos + i)));
+        src.position(srcPos + len);
+        pad.position(padPos + len);
+        dst.position(dstPos + len);
+    }
+
+    /**
+     * Method to encode a range of a byte array in place using a range of a one-time pad
+     * @param buffer array containing the message, overwritten with the encoded message
+     * @param off offset of the message in <code>buffer</code>
+     * @param len length of the message
+     * @param pad array containing the one-time pad
+     * @param padOff offset of the one-time pad in <code>pad</code>
+     */
+    public static void oneTimePadInPlace(byte[] buffer, int off, int len, byte[] pad, int padOff) {
+        oneTimePad(buffer, off, len, pad, padOff, buffer, off);
+    }
+
+    /**
+     * Method to encode the remaining bytes of a buffer in place using a one-time pad buffer.
+     * The positions of both buffers are moved past the processed bytes.
+     * @param buffer buffer containing the message, overwritten with the encoded message
+     * @param pad buffer containing the one-time pad
+     */
+    public static void oneTimePadInPlace(ByteBuffer buffer, ByteBuffer pad) {
+        oneTimePad(buffer, pad, buffer.duplicate());
+    }
+
+    /** Block size from which the cbc blocks are XORed by the {@link CipherEngine} */
+    static final int CBC_MIN_BLOCK = Long.BYTES;
+
+    // ============================================================================================
+    // ===================================== RANGE CHECKS =========================================
+    // ============================================================================================
+
+    /**
+     * Check that <code>[off, off + len)</code> is a valid range of <code>array</code>
+     */
+    static void checkRange(byte[] array, int off, int len) {
+        assert (array != null);
+        assert (0 <= off && 0 <= len && off <= array.length - len);
+    }
+
+    /**
+     * Check that <code>dst</code> can receive all the remaining bytes of <code>src</code>
+     */
+    static void checkBuffers(ByteBuffer src, ByteBuffer dst) {
+        assert (src != null && dst != null);
+        assert (!dst.isReadOnly());
+        assert (dst.remaining() >= src.remaining());
     }
 
-}
\ No newline at end of file
+}
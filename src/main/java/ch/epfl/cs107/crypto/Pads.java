@@ -0,0 +1,328 @@
+package ch.epfl.cs107.crypto;
+
+import ch.epfl.cs107.Helper;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Generation of one-time pads and initialization vectors.
+ * <p>
+ * No generator is shared between threads: {@link Mode#FAST} uses the {@link ThreadLocalRandom} of the
+ * calling thread, {@link Mode#SECURE} one {@link SecureRandom} per thread, and seeded pads are split into
+ * independent {@link SplittableRandom} generators (one per chunk, so the same seed always gives the same pad).
+ * Large pads are filled by chunks of {@link #CHUNK_SIZE} bytes on all the cores, and pads that don't fit in
+ * memory are streamed into buffers, channels or files:
+ * <pre>
+ * final var cipher = Encrypt.oneTimePad(plainText, Pads.generate(plainText.length));
+ * Pads.write(path, size, Pads.Mode.SECURE);
+ * final var stream = StreamCipher.encryptOneTimePad(FileChannel.open(path));
+ * </pre>
+ */
+public final class Pads {
+
+    private Pads(){}
+
+    /**
+     * Source of the random bytes
+     */
+    public enum Mode {
+        /** Fast, non cryptographic generator of the current thread */
+        FAST,
+        /** Cryptographically strong generator of the current thread */
+        SECURE
+    }
+
+    /** Number of bytes generated by a single task */
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Size (in bytes) from which pads are generated on several threads.
+     * Can be tuned with the <code>ch.epfl.cs107.crypto.pad.threshold</code> system property.
+     */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("ch.epfl.cs107.crypto.pad.threshold", 1 << 22);
+
+    /** Size of the buffer used to write pads to channels */
+    private static final int BUFFER_SIZE = 1 << 22;
+
+    /** View of a <code>byte[]</code> as <code>long</code> words, at any offset */
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /** Cryptographically strong generator of every thread */
+    private static final ThreadLocal<SecureRandom> SECURE = ThreadLocal.withInitial(SecureRandom::new);
+
+    // ============================================================================================
+    // ======================================== ARRAYS ============================================
+    // ============================================================================================
+
+    /**
+     * Generate a pad with the {@link Mode#FAST} generator
+     * @param length the size of the pad
+     * @return random bytes in an array of length <code>length</code>
+     */
+    public static byte[] generate(int length) {
+        return generate(length, Mode.FAST);
+    }
+
+    /**
+     * Generate a pad
+     * @param length the size of the pad
+     * @param mode source of the random bytes
+     * @return random bytes in an array of length <code>length</code>
+     */
+    public static byte[] generate(int length, Mode mode) {
+        assert (length >= 0);
+        final var pad = new byte[length];
+        fill(pad, 0, length, mode);
+        return pad;
+    }
+
+    /**
+     * Generate a reproducible pad: the same seed always gives the same pad, whatever the number of threads
+     * @param length the size of the pad
+     * @param seed seed of the pad
+     * @return pseudo random bytes in an array of length <code>length</code>
+     */
+    public static byte[] generate(int length, long seed) {
+        assert (length >= 0);
+        final var pad = new byte[length];
+        final var generators = split(new SplittableRandom(seed), chunks(length));
+        IntStream.range(0, generators.length).parallel()
+                .forEach(c -> fillChunk(pad, 0, length, c, generators[c]));
+        return pad;
+    }
+
+    /**
+     * Generate an initialization vector for {@link Encrypt#cbc(byte[], byte[])}, with the {@link Mode#SECURE} generator
+     * @param size the pad of size BLOCKSIZE
+     * @return the initialization vector
+     */
+    public static byte[] iv(int size) {
+        assert (size > 0);
+        final var iv = new byte[size];
+        SECURE.get().nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * Fill a range of an array with random bytes, on several threads from {@link #PARALLEL_THRESHOLD} bytes
+     * @param dst array to fill
+     * @param off offset of the range in <code>dst</code>
+     * @param len length of the range
+     * @param mode source of the random bytes
+     */
+    public static void fill(byte[] dst, int off, int len, Mode mode) {
+        Encrypt.checkRange(dst, off, len);
+        assert (mode != null);
+        if (len < PARALLEL_THRESHOLD)
+            fill(dst, off, len, generator(mode));
+        else
+            //↓ Every chunk takes the generator of the thread it runs on
+            IntStream.range(0, chunks(len)).parallel()
+                    .forEach(c -> fillChunk(dst, off, len, c, generator(mode)));
+    }
+
+    // ============================================================================================
+    // ======================================= STREAMING ==========================================
+    // ============================================================================================
+
+    /**
+     * Fill the remaining bytes of a buffer with random bytes.
+     * The position of the buffer is moved to its limit.
+     * @param dst buffer to fill
+     * @param mode source of the random bytes
+     */
+    public static void fill(ByteBuffer dst, Mode mode) {
+        assert (dst != null && !dst.isReadOnly());
+        if (dst.hasArray()) {
+            fill(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(), mode);
+            dst.position(dst.limit());
+            return;
+        }
+        final var generator = generator(mode);
+        final var order = dst.order();
+        dst.order(ByteOrder.nativeOrder());
+        while (dst.remaining() >= Long.BYTES)
+            dst.putLong(generator.nextLong());
+        while (dst.hasRemaining())
+            dst.put((byte) generator.nextInt());
+        dst.order(order);
+    }
+
+    /**
+     * Build a channel reading a pad of the given size, to encrypt messages that don't fit in memory
+     * (see {@link StreamCipher#encryptOneTimePad(ReadableByteChannel)}).
+     * Every part of the pad is written to <code>sink</code> before being read, so the pad is kept to decrypt.
+     * <pre>
+     * try (final var key = FileChannel.open(keyPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+     *     final var cipher = StreamCipher.encryptOneTimePad(Pads.channel(size, Pads.Mode.SECURE, key));
+     *     ...
+     * }
+     * </pre>
+     * @param size the size of the pad
+     * @param mode source of the random bytes
+     * @param sink channel receiving a copy of the pad, as it is read
+     * @return the channel, at its end after <code>size</code> bytes
+     */
+    public static ReadableByteChannel channel(long size, Mode mode, WritableByteChannel sink) {
+        assert (size >= 0);
+        assert (mode != null);
+        assert (sink != null);
+        return new PadChannel(size, mode, sink);
+    }
+
+    /**
+     * Write a pad to a channel, the pad being generated by parts of a few MB
+     * @param channel channel receiving the pad
+     * @param size the size of the pad
+     * @param mode source of the random bytes
+     * @throws IOException if the channel fails
+     */
+    public static void write(WritableByteChannel channel, long size, Mode mode) throws IOException {
+        assert (channel != null);
+        assert (size >= 0);
+        final var buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, size));
+        for (long done = 0; done < size; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - done));
+            fill(buffer, mode);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                done += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Write a pad to a file, replacing its content
+     * @param path Path to the file
+     * @param size the size of the pad
+     * @param mode source of the random bytes
+     */
+    public static void write(Path path, long size, Mode mode) {
+        assert (path != null);
+        try (final var file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(file, size, mode);
+        } catch (IOException e) {
+            Helper.fail("An error occurred while trying to write the pad to : '%s'", path);
+        }
+    }
+
+    // ============================================================================================
+    // ===================================== IMPLEMENTATIONS ======================================
+    // ============================================================================================
+
+    /**
+     * @return the generator of the current thread for the given mode
+     */
+    private static RandomGenerator generator(Mode mode) {
+        return switch (mode) {
+            case FAST -> ThreadLocalRandom.current();
+            case SECURE -> SECURE.get();
+        };
+    }
+
+    /**
+     * @return the number of chunks of a pad of <code>len</code> bytes
+     */
+    private static int chunks(int len) {
+        return (int) ((len + (long) CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+
+    /**
+     * Split a generator into independent ones, always the same for the same generator
+     */
+    private static SplittableRandom[] split(SplittableRandom root, int n) {
+        final var generators = new SplittableRandom[n];
+        for (int i = 0; i < n; ++i)
+            generators[i] = root.split();
+        return generators;
+    }
+
+    /**
+     * Fill the chunk <code>c</code> of the range <code>[off, off + len)</code>
+     */
+    private static void fillChunk(byte[] dst, int off, int len, int c, RandomGenerator generator) {
+        final int from = c * CHUNK_SIZE;
+        fill(dst, off + from, Math.min(CHUNK_SIZE, len - from), generator);
+    }
+
+    /**
+     * Fill a range with a single generator, 8 bytes at a time
+     */
+    private static void fill(byte[] dst, int off, int len, RandomGenerator generator) {
+        if (generator instanceof SecureRandom secure) {
+            // Secure generators only produce whole arrays
+            if (off == 0 && len == dst.length) {
+                secure.nextBytes(dst);
+            } else {
+                final var bytes = new byte[len];
+                secure.nextBytes(bytes);
+                System.arraycopy(bytes, 0, dst, off, len);
+            }
+            return;
+        }
+        int i = 0;
+        for (; i <= len - Long.BYTES; i += Long.BYTES)
+            LONG.set(dst, off + i, generator.nextLong());
+        if (i < len) {
+            long word = generator.nextLong();
+            for (; i < len; ++i, word >>>= Byte.SIZE)
+                dst[off + i] = (byte) word;
+        }
+    }
+
+    /** Pad read by chunks, generated as the reader goes and copied to a sink */
+    private static final class PadChannel implements ReadableByteChannel {
+
+        private final Mode mode;
+        private final WritableByteChannel sink;
+        private long remaining;
+        private boolean open = true;
+
+        private PadChannel(long size, Mode mode, WritableByteChannel sink) {
+            this.remaining = size;
+            this.mode = mode;
+            this.sink = sink;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining == 0)
+                return -1;
+            final int n = (int) Math.min(dst.remaining(), remaining);
+            final var view = dst.slice().limit(n);
+            fill(view, mode);
+            //↓ The bytes are only given to the reader once they are kept
+            view.flip();
+            while (view.hasRemaining())
+                sink.write(view);
+            dst.position(dst.position() + n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+}
@@ -0,0 +1,506 @@
+package ch.epfl.cs107.crypto;
+
+import ch.epfl.cs107.Helper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Chunk oriented version of the algorithms of {@link Encrypt} and {@link Decrypt}.
+ * <p>
+ * A stream cipher remembers where it stopped (the Vigenere key offset, the CBC chaining pad,
+ * the position in the one-time pad ...), so a message can be processed chunk by chunk and
+ * still give the same result as the corresponding method of {@link Encrypt} or {@link Decrypt}
+ * called on the whole message.
+ * <p>
+ * A stream cipher is also a session: payloads arriving in fragments are fed with the
+ * <code>update</code> methods, the last fragment with <code>doFinal</code>, which ends the message.
+ * A session can then be reused for the next payload, so a pool of sessions can serve many connections
+ * without any allocation. The key material which must never encrypt two messages is never rewound:
+ * <ul>
+ *     <li>Caesar, Vigenere and XOR sessions are {@link #reset() reset} to the start of their key</li>
+ *     <li>one-time pad sessions go on with the rest of the pad</li>
+ *     <li>CBC sessions refuse any new chunk until they are {@link #reset(byte[]) reset} with a fresh iv</li>
+ * </ul>
+ *
+ * @see CipherInputStream
+ * @see CipherOutputStream
+ * @see CipherChannels
+ */
+public abstract class StreamCipher {
+
+    /** Size of the internal buffers used to read one-time pads */
+    static final int CHUNK_SIZE = 8192;
+
+    // Instances are only built through the factories below
+    StreamCipher(){}
+
+    // ============================================================================================
+    // ===================================== PROCESSING ===========================================
+    // ============================================================================================
+
+    /**
+     * Process the next chunk of the message
+     * @implNote <code>src</code> and <code>dst</code> can be the same region (in place processing)
+     * @param src array containing the chunk to process
+     * @param srcOff offset of the chunk in <code>src</code>
+     * @param len length of the chunk
+     * @param dst array receiving the processed chunk
+     * @param dstOff offset of the processed chunk in <code>dst</code>
+     */
+    public abstract void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff);
+
+    /**
+     * Process the next chunk of the message in place
+     * @param buffer array containing the chunk to process
+     * @param off offset of the chunk in <code>buffer</code>
+     * @param len length of the chunk
+     */
+    public final void process(byte[] buffer, int off, int len) {
+        process(buffer, off, len, buffer, off);
+    }
+
+    // ============================================================================================
+    // ======================================== SESSIONS ==========================================
+    // ============================================================================================
+
+    /**
+     * Bring the session back to the start of its key (start of the keyword ...), ready to process a new message
+     * @implNote the sessions whose key material must not be used twice (CBC iv, one-time pads) fail:
+     * they take fresh material with {@link #reset(byte[])}
+     */
+    public abstract void reset();
+
+    /**
+     * Start a new message with fresh key material
+     * @implNote only for CBC (a new iv, of the size of the previous one) and the one-time pads held
+     * in memory (a new pad, not copied)
+     * @param material the new iv or pad
+     */
+    public void reset(byte[] material) {
+        Helper.fail("This cipher doesn't take fresh key material");
+    }
+
+    /**
+     * End the current message, called by <code>doFinal</code>: {@link #reset()} by default
+     */
+    void finish() {
+        reset();
+    }
+
+    /**
+     * Process the next fragment of the message into a caller supplied array
+     * @param src array containing the fragment to process
+     * @param srcOff offset of the fragment in <code>src</code>
+     * @param len length of the fragment
+     * @param dst array receiving the processed fragment
+     * @param dstOff offset of the processed fragment in <code>dst</code>
+     * @return the number of bytes written in <code>dst</code>, always <code>len</code>
+     */
+    public final int update(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        process(src, srcOff, len, dst, dstOff);
+        return len;
+    }
+
+    /**
+     * Process the next fragment of the message
+     * @param src array containing the fragment to process
+     * @param off offset of the fragment in <code>src</code>
+     * @param len length of the fragment
+     * @return the processed fragment
+     */
+    public final byte[] update(byte[] src, int off, int len) {
+        final var dst = new byte[len];
+        process(src, off, len, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Process the last fragment of the message into a caller supplied array, then end the message
+     * @param src array containing the fragment to process
+     * @param srcOff offset of the fragment in <code>src</code>
+     * @param len length of the fragment
+     * @param dst array receiving the processed fragment
+     * @param dstOff offset of the processed fragment in <code>dst</code>
+     * @return the number of bytes written in <code>dst</code>, always <code>len</code>
+     */
+    public final int doFinal(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        process(src, srcOff, len, dst, dstOff);
+        finish();
+        return len;
+    }
+
+    /**
+     * Process the last fragment of the message, then end the message
+     * @param src array containing the fragment to process
+     * @param off offset of the fragment in <code>src</code>
+     * @param len length of the fragment
+     * @return the processed fragment
+     */
+    public final byte[] doFinal(byte[] src, int off, int len) {
+        final var dst = update(src, off, len);
+        finish();
+        return dst;
+    }
+
+    /**
+     * Check the bounds of a chunk given to {@link #process(byte[], int, int, byte[], int)}
+     */
+    static void checkChunk(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        assert (src != null && dst != null);
+        assert (len >= 0);
+        assert (0 <= srcOff && srcOff <= src.length - len);
+        assert (0 <= dstOff && dstOff <= dst.length - len);
+    }
+
+    // ============================================================================================
+    // ================================== CAESAR'S ENCRYPTION =====================================
+    // ============================================================================================
+
+    /**
+     * Stream version of {@link Encrypt#caesar(byte[], byte)}
+     * @param key the byte corresponding to the char we use to shift
+     * @return a stream cipher encoding with the given key
+     */
+    public static StreamCipher encryptCaesar(byte key) {
+        return new Shift(key);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#caesar(byte[], byte)}
+     * @param key Key to decode with
+     * @return a stream cipher decoding with the given key
+     */
+    public static StreamCipher decryptCaesar(byte key) {
+        return new Shift((byte) (-1 * key));
+    }
+
+    // ============================================================================================
+    // =============================== VIGENERE'S ENCRYPTION ======================================
+    // ============================================================================================
+
+    /**
+     * Stream version of {@link Encrypt#vigenere(byte[], byte[])}
+     * @param keyword the byte array representing the key used to perform the shift
+     * @return a stream cipher encoding with the given keyword
+     */
+    public static StreamCipher encryptVigenere(byte[] keyword) {
+        assert (keyword != null && keyword.length != 0);
+        return new Vigenere(keyword, 1);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#vigenere(byte[], byte[])}
+     * @param keyword Key to decode with
+     * @return a stream cipher decoding with the given keyword
+     */
+    public static StreamCipher decryptVigenere(byte[] keyword) {
+        assert (keyword != null && keyword.length != 0);
+        return new Vigenere(keyword, -1);
+    }
+
+    // ============================================================================================
+    // =================================== CBC'S ENCRYPTION =======================================
+    // ============================================================================================
+
+    /**
+     * Stream version of {@link Encrypt#cbc(byte[], byte[])}
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @return a stream cipher encoding with the given iv
+     */
+    public static StreamCipher encryptCbc(byte[] iv) {
+        assert (iv != null && iv.length > 0);
+        return new Cbc(iv.clone(), true);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#cbc(byte[], byte[])}
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     * @return a stream cipher decoding with the given iv
+     */
+    public static StreamCipher decryptCbc(byte[] iv) {
+        assert (iv != null && iv.length > 0);
+        return new Cbc(iv.clone(), false);
+    }
+
+    // ============================================================================================
+    // =================================== XOR'S ENCRYPTION =======================================
+    // ============================================================================================
+
+    /**
+     * Stream version of {@link Encrypt#xor(byte[], byte)}
+     * @param key the byte we will use to XOR
+     * @return a stream cipher encoding with the given key
+     */
+    public static StreamCipher encryptXor(byte key) {
+        return new Xor(key);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#xor(byte[], byte)}
+     * @param key the byte we will use to XOR
+     * @return a stream cipher decoding with the given key
+     */
+    public static StreamCipher decryptXor(byte key) {
+        // XOR is involutive
+        return new Xor(key);
+    }
+
+    // ============================================================================================
+    // =================================== ONETIME'S PAD ENCRYPTION ===============================
+    // ============================================================================================
+
+    /**
+     * Stream version of {@link Encrypt#oneTimePad(byte[], byte[])}
+     * @implNote the pad is not copied
+     * @param pad the one-time pad
+     * @return a stream cipher encoding with the given pad
+     */
+    public static StreamCipher encryptOneTimePad(byte[] pad) {
+        assert (pad != null);
+        return new OneTimePad(pad);
+    }
+
+    /**
+     * Stream version of {@link Encrypt#oneTimePad(byte[], byte[])}, the pad being read as
+     * the message goes, so it doesn't have to fit in memory
+     * @implNote the session can't be reset: the next messages go on with the rest of the channel
+     * @param pad blocking channel providing the one-time pad
+     * @return a stream cipher encoding with the given pad
+     */
+    public static StreamCipher encryptOneTimePad(ReadableByteChannel pad) {
+        assert (pad != null);
+        return new OneTimePadChannel(pad);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#oneTimePad(byte[], byte[])}
+     * @implNote the pad is not copied
+     * @param pad the one-time pad to use
+     * @return a stream cipher decoding with the given pad
+     */
+    public static StreamCipher decryptOneTimePad(byte[] pad) {
+        // The one-time pad is involutive too
+        return encryptOneTimePad(pad);
+    }
+
+    /**
+     * Stream version of {@link Decrypt#oneTimePad(byte[], byte[])}, the pad being read as
+     * the message goes, so it doesn't have to fit in memory
+     * @implNote the session can't be reset: the next messages go on with the rest of the channel
+     * @param pad blocking channel providing the one-time pad
+     * @return a stream cipher decoding with the given pad
+     */
+    public static StreamCipher decryptOneTimePad(ReadableByteChannel pad) {
+        return encryptOneTimePad(pad);
+    }
+
+    // ============================================================================================
+    // ===================================== IMPLEMENTATIONS ======================================
+    // ============================================================================================
+
+    /** Caesar: add the same key to each byte */
+    private static final class Shift extends StreamCipher {
+
+        private final byte key;
+
+        private Shift(byte key) {
+            this.key = key;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            Encrypt.caesar(src, srcOff, len, key, dst, dstOff);
+        }
+
+        @Override
+        public void reset() {
+            // Stateless
+        }
+    }
+
+    /** Vigenere: the position in the keyword is kept from one chunk to the next */
+    private static final class Vigenere extends StreamCipher {
+
+        /** Table of the keyword, built once for the whole session */
+        private final CipherEngine.KeyTable keyword;
+        private final int sign;
+        private int index;
+
+        private Vigenere(byte[] keyword, int sign) {
+            this.keyword = CipherEngine.current().newKeyTable(keyword);
+            this.sign = sign;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            checkChunk(src, srcOff, len, dst, dstOff);
+            CipherEngine.current().addKeyword(src, srcOff, len, keyword, index, sign, dst, dstOff);
+            index = (int) ((index + (long) len) % keyword.length());
+        }
+
+        @Override
+        public void reset() {
+            index = 0;
+        }
+    }
+
+    /** CBC: the chaining pad and the position in the current block are kept from one chunk to the next */
+    private static final class Cbc extends StreamCipher {
+
+        private final byte[] pad;
+        private final boolean encrypt;
+        private int index;
+        /** Whether the message was ended, the iv being used up */
+        private boolean finished;
+
+        private Cbc(byte[] iv, boolean encrypt) {
+            this.pad = iv;
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            checkChunk(src, srcOff, len, dst, dstOff);
+            if (finished)
+                Helper.fail("The CBC session is finished: reset it with a fresh iv");
+            for (int i = 0; i < len; ++i) {
+                byte in = src[srcOff + i];
+                byte out = (byte) (in ^ pad[index]);
+                dst[dstOff + i] = out;
+                // The next block is always chained with the cipher of the current one
+                pad[index] = encrypt ? out : in;
+                if (++index == pad.length)
+                    index = 0;
+            }
+        }
+
+        @Override
+        public void reset() {
+            Helper.fail("A CBC session can't reuse its iv: reset it with a fresh one");
+        }
+
+        @Override
+        public void reset(byte[] iv) {
+            assert (iv != null && iv.length == pad.length);
+            System.arraycopy(iv, 0, pad, 0, iv.length);
+            index = 0;
+            finished = false;
+        }
+
+        @Override
+        void finish() {
+            finished = true;
+        }
+    }
+
+    /** XOR with a single byte key */
+    private static final class Xor extends StreamCipher {
+
+        private final byte key;
+
+        private Xor(byte key) {
+            this.key = key;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            Encrypt.xor(src, srcOff, len, key, dst, dstOff);
+        }
+
+        @Override
+        public void reset() {
+            // Stateless
+        }
+    }
+
+    /** One-time pad held in memory: only the position in the pad is kept, the next message using the rest of the pad */
+    private static final class OneTimePad extends StreamCipher {
+
+        private byte[] pad;
+        private int position;
+
+        private OneTimePad(byte[] pad) {
+            this.pad = pad;
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            if (len > pad.length - position)
+                Helper.fail("The one-time pad is shorter than the message");
+            Encrypt.oneTimePad(src, srcOff, len, pad, position, dst, dstOff);
+            position += len;
+        }
+
+        @Override
+        public void reset() {
+            Helper.fail("A one-time pad can't be used twice: reset the session with a fresh pad");
+        }
+
+        @Override
+        public void reset(byte[] pad) {
+            assert (pad != null);
+            this.pad = pad;
+            position = 0;
+        }
+
+        @Override
+        void finish() {
+            // The rest of the pad was never used
+        }
+    }
+
+    /** One-time pad read from a channel by chunks of {@link #CHUNK_SIZE} bytes as the message goes */
+    private static final class OneTimePadChannel extends StreamCipher {
+
+        private final ReadableByteChannel source;
+        private final ByteBuffer pad = ByteBuffer.allocate(CHUNK_SIZE).limit(0);
+
+        private OneTimePadChannel(ReadableByteChannel source) {
+            this.source = source;
+        }
+
+        @Override
+        public void reset() {
+            Helper.fail("A one-time pad can't be used twice: build a new session with a fresh pad");
+        }
+
+        @Override
+        void finish() {
+            // The rest of the pad was never used
+        }
+
+        @Override
+        public void process(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            checkChunk(src, srcOff, len, dst, dstOff);
+            final var padArray = pad.array();
+            int done = 0;
+            while (done < len) {
+                if (!pad.hasRemaining())
+                    refill();
+                final var start = pad.position();
+                final var n = Math.min(pad.remaining(), len - done);
+                Encrypt.oneTimePad(src, srcOff + done, n, padArray, start, dst, dstOff + done);
+                pad.position(start + n);
+                done += n;
+            }
+        }
+
+        private void refill() {
+            pad.clear();
+            try {
+                final int read = source.read(pad);
+                //↓ A blocking channel always reads some bytes: nothing read means a non-blocking channel with no bytes yet
+                if (read == 0)
+                    Helper.fail("The one-time pad channel has no bytes available, it must be blocking");
+                if (read < 0)
+                    Helper.fail("The one-time pad is shorter than the message");
+            } catch (IOException e) {
+                Helper.fail("An error occurred while trying to read the one-time pad");
+            }
+            pad.flip();
+        }
+    }
+
+}
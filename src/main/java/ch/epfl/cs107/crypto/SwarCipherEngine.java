@@ -0,0 +1,93 @@
+package ch.epfl.cs107.crypto;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * {@link CipherEngine} processing 8 bytes at a time in a <code>long</code> ("SIMD within a register").
+ * <p>
+ * The <code>long</code> words are read and written at any (unaligned) offset of the arrays through a
+ * byte array view {@link VarHandle}. The tails shorter than a word go through the scalar loops.
+ */
+final class SwarCipherEngine extends CipherEngine.Scalar {
+
+    /** View of a <code>byte[]</code> as <code>long</code> words, at any offset */
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /** The lowest bit of every byte of a word */
+    private static final long ONES = 0x01_01_01_01_01_01_01_01L;
+    /** The highest bit of every byte of a word */
+    private static final long HIGHS = 0x80_80_80_80_80_80_80_80L;
+
+    @Override
+    String name() {
+        return "swar";
+    }
+
+    /**
+     * Add the 8 bytes of two words independently, dropping the carries between bytes
+     */
+    private static long add(long a, long b) {
+        // Add the low 7 bits of every byte (no carry can leave the byte), then fix the highest bits
+        return ((a & ~HIGHS) + (b & ~HIGHS)) ^ ((a ^ b) & HIGHS);
+    }
+
+    /**
+     * Subtract the 8 bytes of two words independently, dropping the borrows between bytes
+     */
+    private static long sub(long a, long b) {
+        // Set the highest bit of every byte of a (no borrow can leave the byte), then fix the highest bits
+        return ((a | HIGHS) - (b & ~HIGHS)) ^ ((a ^ ~b) & HIGHS);
+    }
+
+    @Override
+    void add(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        final long keys = Byte.toUnsignedLong(key) * ONES;
+        int i = 0;
+        for (; i <= len - Long.BYTES; i += Long.BYTES)
+            LONG.set(dst, dstOff + i, add((long) LONG.get(src, srcOff + i), keys));
+        super.add(src, srcOff + i, len - i, key, dst, dstOff + i);
+    }
+
+    @Override
+    void addKeyword(byte[] src, int srcOff, int len, KeyTable keyword, int keyOff, int sign, byte[] dst, int dstOff) {
+        // The table repeats the keyword over keyword.length + 8 bytes, so the key word of any position starts at `k < m`
+        final int m = keyword.length();
+        final int step = Long.BYTES % m;
+        int k = keyOff % m;
+        int i = 0;
+        for (; i <= len - Long.BYTES; i += Long.BYTES) {
+            final long word = (long) LONG.get(src, srcOff + i);
+            final long keys = (long) LONG.get(keyword.keys, k);
+            LONG.set(dst, dstOff + i, sign > 0 ? add(word, keys) : sub(word, keys));
+            k += step;
+            if (k >= m)
+                k -= m;
+        }
+        super.addKeyword(src, srcOff + i, len - i, keyword, k, sign, dst, dstOff + i);
+    }
+
+    @Override
+    int keyLanes() {
+        return Long.BYTES;
+    }
+
+    @Override
+    void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        final long keys = Byte.toUnsignedLong(key) * ONES;
+        int i = 0;
+        for (; i <= len - Long.BYTES; i += Long.BYTES)
+            LONG.set(dst, dstOff + i, (long) LONG.get(src, srcOff + i) ^ keys);
+        super.xor(src, srcOff + i, len - i, key, dst, dstOff + i);
+    }
+
+    @Override
+    void xor(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff) {
+        int i = 0;
+        for (; i <= len - Long.BYTES; i += Long.BYTES)
+            LONG.set(dst, dstOff + i, (long) LONG.get(src, srcOff + i) ^ (long) LONG.get(pad, padOff + i));
+        super.xor(src, srcOff + i, len - i, pad, padOff + i, dst, dstOff + i);
+    }
+
+}
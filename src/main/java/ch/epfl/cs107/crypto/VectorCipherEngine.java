@@ -0,0 +1,86 @@
+package ch.epfl.cs107.crypto;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorOperators.Binary;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link CipherEngine} processing {@link #SPECIES} bytes per instruction with the Vector API.
+ * <p>
+ * Only loaded (reflectively) when the <code>jdk.incubator.vector</code> module is available.
+ * The tails shorter than a vector go through the scalar loops.
+ */
+final class VectorCipherEngine extends CipherEngine.Scalar {
+
+    /** Widest byte vector supported by the platform (16 to 64 lanes) */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    String name() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    void add(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        final var keys = ByteVector.broadcast(SPECIES, key);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            ByteVector.fromArray(SPECIES, src, srcOff + i)
+                    .add(keys)
+                    .intoArray(dst, dstOff + i);
+        super.add(src, srcOff + i, len - i, key, dst, dstOff + i);
+    }
+
+    @Override
+    void addKeyword(byte[] src, int srcOff, int len, KeyTable keyword, int keyOff, int sign, byte[] dst, int dstOff) {
+        // Broadcast the keyword into the lanes: the table repeats the keyword over keyword.length + lanes bytes,
+        // so the key vector of any position starts at `k < m`
+        final int lanes = SPECIES.length();
+        final int bound = SPECIES.loopBound(len);
+        final Binary op = sign > 0 ? VectorOperators.ADD : VectorOperators.SUB;
+        final int m = keyword.length();
+        final int step = lanes % m;
+        int k = keyOff % m;
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            ByteVector.fromArray(SPECIES, src, srcOff + i)
+                    .lanewise(op, ByteVector.fromArray(SPECIES, keyword.keys, k))
+                    .intoArray(dst, dstOff + i);
+            k += step;
+            if (k >= m)
+                k -= m;
+        }
+        super.addKeyword(src, srcOff + i, len - i, keyword, k, sign, dst, dstOff + i);
+    }
+
+    @Override
+    int keyLanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    void xor(byte[] src, int srcOff, int len, byte key, byte[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        final var keys = ByteVector.broadcast(SPECIES, key);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            ByteVector.fromArray(SPECIES, src, srcOff + i)
+                    .lanewise(VectorOperators.XOR, keys)
+                    .intoArray(dst, dstOff + i);
+        super.xor(src, srcOff + i, len - i, key, dst, dstOff + i);
+    }
+
+    @Override
+    void xor(byte[] src, int srcOff, int len, byte[] pad, int padOff, byte[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            ByteVector.fromArray(SPECIES, src, srcOff + i)
+                    .lanewise(VectorOperators.XOR, ByteVector.fromArray(SPECIES, pad, padOff + i))
+                    .intoArray(dst, dstOff + i);
+        super.xor(src, srcOff + i, len - i, pad, padOff + i, dst, dstOff + i);
+    }
+
+}
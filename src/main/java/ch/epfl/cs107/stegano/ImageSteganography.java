@@ -1,6 +1,10 @@
 package ch.epfl.cs107.stegano;
 
 import ch.epfl.cs107.Helper;
+import ch.epfl.cs107.utils.BinaryImage;
+import ch.epfl.cs107.utils.GrayPlane;
+import ch.epfl.cs107.utils.ImageBuffer;
+import ch.epfl.cs107.utils.RowPartition;
 
 import static ch.epfl.cs107.utils.Text.*;
 import static ch.epfl.cs107.utils.Image.*;
@@ -29,26 +33,66 @@ public final class ImageSteganography {
 
     /**
      * Embed an ARGB image on another ARGB image (the cover)
+     * @implNote the gray scale and the binary value of every pixel of the embedded image are computed on the fly,
+     * without building the intermediate images of {@link Image#toGray(int[][])} and {@link Image#toBinary(int[][], int)}
      * @param cover Cover image
      * @param argbImage Embedded image
      * @param threshold threshold to use for binary conversion
      * @return ARGB image with the image embedded on the cover
      */
     public static int[][] embedARGB(int[][] cover, int[][] argbImage, int threshold){
-        int[][] argbToGray = toGray(argbImage);
-        return embedGray(cover, argbToGray, threshold);
+        assert(cover != null);
+        int[][] embeddedImage = new int[cover.length][];
+        for(int i = 0; i < cover.length; ++i)
+            embeddedImage[i] = cover[i].clone();
+        return embedARGBInPlace(embeddedImage, argbImage, threshold);
+    }
+
+    /**
+     * Embed an ARGB image on another ARGB image (the cover), overwriting the cover
+     * (see {@link #embedARGB(int[][], int[][], int)})
+     * @param cover Cover image, receiving the image
+     * @param argbImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @return <code>cover</code>
+     */
+    public static int[][] embedARGBInPlace(int[][] cover, int[][] argbImage, int threshold){
+        assert(cover != null && argbImage != null);
+        assert ((cover.length != 0) && (argbImage.length != 0));
+        assert(argbImage.length <= cover.length);
+        assert(argbImage[0].length <= cover[0].length);
+
+        for(int i = 0; i < argbImage.length; ++i){
+            for(int j = 0; j < argbImage[0].length; ++j)
+                cover[i][j] = embedInLSB(cover[i][j], binary(gray(argbImage[i][j]), threshold));
+        }
+        return cover;
     }
 
     /**
      * Embed a Gray scaled image on another ARGB image (the cover)
+     * @implNote the binary value of every pixel of the embedded image is computed on the fly,
+     * without building the intermediate image of {@link Image#toBinary(int[][], int)}
      * @param cover Cover image
      * @param grayImage Embedded image
      * @param threshold threshold to use for binary conversion
      * @return ARGB image with the image embedded on the cover
      */
     public static int[][] embedGray(int[][] cover, int[][] grayImage, int threshold){
-        boolean[][] grayImageToBinary = toBinary(grayImage, threshold);
-        return embedBW(cover, grayImageToBinary);
+        assert(cover != null && grayImage != null);
+        assert ((cover.length != 0) && (grayImage.length != 0));
+        assert(grayImage.length <= cover.length);
+        assert(grayImage[0].length <= cover[0].length);
+
+        int[][] embeddedImage = new int[cover.length][];
+        for(int i = 0; i < cover.length; ++i){
+            embeddedImage[i] = cover[i].clone();
+            if(i < grayImage.length){
+                for(int j = 0; j < grayImage[0].length; ++j)
+                    embeddedImage[i][j] = embedInLSB(cover[i][j], binary(grayImage[i][j], threshold));
+            }
+        }
+        return embeddedImage;
     }
 
     /**
@@ -63,8 +107,14 @@ public final class ImageSteganography {
         assert(load.length <= cover.length);
         assert(load[0].length <= cover[0].length);
 
-        int[][] embeddedBwImage = new int[cover.length][cover[0].length];
-        for(int i = 0; i < cover.length; ++i){
+        int[][] embeddedBwImage = new int[cover.length][];
+        embedBWRows(cover, load, embeddedBwImage, 0, cover.length);
+        return embeddedBwImage;
+    }
+
+    private static void embedBWRows(int[][] cover, boolean[][] load, int[][] embeddedBwImage, int from, int to){
+        for(int i = from; i < to; ++i){
+            embeddedBwImage[i] = new int[cover[0].length];
             for(int j = 0; j < cover[i].length; ++j){
                 if(i < load.length && j < load[0].length) {
                     embeddedBwImage[i][j] = embedInLSB(cover[i][j], load[i][j]);
@@ -73,7 +123,6 @@ public final class ImageSteganography {
                 }
             }
         }
-        return embeddedBwImage;
     }
 
     // ============================================================================================
@@ -88,12 +137,302 @@ public final class ImageSteganography {
     public static boolean[][] revealBW(int[][] image) {
         assert(image != null);
         assert(image.length != 0);
-        boolean[][] revealedImage = new boolean[image.length][image[0].length];
-        for(int i = 0; i < image.length; ++i){
+        boolean[][] revealedImage = new boolean[image.length][];
+        revealBWRows(image, revealedImage, 0, image.length);
+        return revealedImage;
+    }
+
+    private static void revealBWRows(int[][] image, boolean[][] revealedImage, int from, int to){
+        for(int i = from; i < to; ++i){
+            revealedImage[i] = new boolean[image[0].length];
             for(int j = 0; j < image[0].length; ++j){
                 revealedImage[i][j] = getLSB(image[i][j]);
             }
         }
+    }
+
+    // ============================================================================================
+    // ================================== FLAT IMAGE METHODS ======================================
+    // ============================================================================================
+
+    /**
+     * Embed an ARGB image on another ARGB image (the cover)
+     * @implNote the gray scale and the binary value of every pixel of the embedded image are computed on the fly
+     * @param cover Cover image
+     * @param argbImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedARGB(ImageBuffer cover, ImageBuffer argbImage, int threshold){
+        assert(cover != null);
+        return embedARGBInPlace(cover.copy(), argbImage, threshold);
+    }
+
+    /**
+     * Embed an ARGB image on another ARGB image (the cover), overwriting the cover
+     * (see {@link #embedARGB(ImageBuffer, ImageBuffer, int)})
+     * @param cover Cover image, receiving the image
+     * @param argbImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @return <code>cover</code>
+     */
+    public static ImageBuffer embedARGBInPlace(ImageBuffer cover, ImageBuffer argbImage, int threshold){
+        assert(cover != null && argbImage != null);
+        assert(argbImage.height() <= cover.height());
+        assert(argbImage.width() <= cover.width());
+
+        final int[] src = argbImage.data(), out = cover.data();
+        for(int i = 0; i < argbImage.height(); ++i){
+            final int s = argbImage.rowStart(i), d = cover.rowStart(i);
+            for(int j = 0; j < argbImage.width(); ++j)
+                out[d + j] = embedInLSB(out[d + j], binary(gray(src[s + j]), threshold));
+        }
+        return cover;
+    }
+
+    /**
+     * Embed a Gray scaled image on another ARGB image (the cover)
+     * @implNote the binary value of every pixel of the embedded image is computed on the fly
+     * @param cover Cover image
+     * @param grayImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedGray(ImageBuffer cover, ImageBuffer grayImage, int threshold){
+        assert(cover != null && grayImage != null);
+        assert(grayImage.height() <= cover.height());
+        assert(grayImage.width() <= cover.width());
+
+        ImageBuffer embeddedImage = cover.copy();
+        final int[] src = grayImage.data(), out = embeddedImage.data();
+        for(int i = 0; i < grayImage.height(); ++i){
+            final int s = grayImage.rowStart(i), d = embeddedImage.rowStart(i);
+            for(int j = 0; j < grayImage.width(); ++j)
+                out[d + j] = embedInLSB(out[d + j], binary(src[s + j], threshold));
+        }
+        return embeddedImage;
+    }
+
+    /**
+     * Embed a gray scale plane on another ARGB image (the cover)
+     * @implNote the binary value of every pixel of the embedded image is computed on the fly
+     * @param cover Cover image
+     * @param grayImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedGray(ImageBuffer cover, GrayPlane grayImage, int threshold){
+        assert(cover != null && grayImage != null);
+        assert(grayImage.height() <= cover.height());
+        assert(grayImage.width() <= cover.width());
+
+        ImageBuffer embeddedImage = cover.copy();
+        final byte[] src = grayImage.data();
+        final int[] out = embeddedImage.data();
+        for(int i = 0; i < grayImage.height(); ++i){
+            final int s = grayImage.rowStart(i), d = embeddedImage.rowStart(i);
+            for(int j = 0; j < grayImage.width(); ++j)
+                out[d + j] = embedInLSB(out[d + j], binary(Byte.toUnsignedInt(src[s + j]), threshold));
+        }
+        return embeddedImage;
+    }
+
+    /**
+     * Embed a binary image on another ARGB image (the cover)
+     * @param cover Cover image
+     * @param load Embedded image (1 for <code>true</code>, 0 for <code>false</code>)
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedBW(ImageBuffer cover, ImageBuffer load){
+        assert(cover != null && load != null);
+        assert(load.height() <= cover.height());
+        assert(load.width() <= cover.width());
+
+        ImageBuffer embeddedBwImage = cover.copy();
+        embedBWRows(embeddedBwImage, load, 0, load.height());
+        return embeddedBwImage;
+    }
+
+    private static void embedBWRows(ImageBuffer embeddedBwImage, ImageBuffer load, int from, int to){
+        final int[] src = load.data(), out = embeddedBwImage.data();
+        for(int i = from; i < to; ++i){
+            final int s = load.rowStart(i), d = embeddedBwImage.rowStart(i);
+            for(int j = 0; j < load.width(); ++j)
+                out[d + j] = embedInLSB(out[d + j], src[s + j] != 0);
+        }
+    }
+
+    /**
+     * Reveal a binary image from a given image
+     * @param image Image to reveal from
+     * @return binary representation of the hidden image (1 for <code>true</code>, 0 for <code>false</code>)
+     */
+    public static ImageBuffer revealBW(ImageBuffer image) {
+        assert(image != null);
+
+        ImageBuffer revealedImage = new ImageBuffer(image.width(), image.height());
+        revealBWRows(image, revealedImage, 0, image.height());
+        return revealedImage;
+    }
+
+    private static void revealBWRows(ImageBuffer image, ImageBuffer revealedImage, int from, int to){
+        final int[] src = image.data(), out = revealedImage.data();
+        for(int i = from; i < to; ++i){
+            final int s = image.rowStart(i), d = revealedImage.rowStart(i);
+            for(int j = 0; j < image.width(); ++j)
+                out[d + j] = src[s + j] & 0b1;
+        }
+    }
+
+    // ============================================================================================
+    // ================================ PACKED BINARY METHODS =====================================
+    // ============================================================================================
+
+    /**
+     * Embed a packed binary image on another ARGB image (the cover), 64 pixels per word of the load
+     * @param cover Cover image, whose rows all have the same length
+     * @param load Embedded image
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static int[][] embedBW(int[][] cover, BinaryImage load){
+        assert(cover != null && load != null);
+        assert(load.height() <= cover.length);
+        assert(cover.length == 0 || load.width() <= cover[0].length);
+
+        int[][] embeddedBwImage = new int[cover.length][];
+        for(int i = 0; i < cover.length; ++i){
+            embeddedBwImage[i] = cover[i].clone();
+            if(i < load.height())
+                embedInLSBs(load.words(), load.rowStart(i), load.width(), embeddedBwImage[i], 0);
+        }
+        return embeddedBwImage;
+    }
+
+    /**
+     * Embed a packed binary image on another ARGB image (the cover), 64 pixels per word of the load
+     * @param cover Cover image
+     * @param load Embedded image
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedBW(ImageBuffer cover, BinaryImage load){
+        assert(cover != null && load != null);
+        assert(load.height() <= cover.height());
+        assert(load.width() <= cover.width());
+
+        ImageBuffer embeddedBwImage = cover.copy();
+        for(int i = 0; i < load.height(); ++i)
+            embedInLSBs(load.words(), load.rowStart(i), load.width(),
+                        embeddedBwImage.data(), embeddedBwImage.rowStart(i));
+        return embeddedBwImage;
+    }
+
+    /**
+     * Reveal a packed binary image from a given image, 64 pixels per word
+     * @param image Image to reveal from, whose rows all have the same length
+     * @return binary representation of the hidden image
+     */
+    public static BinaryImage revealBWPacked(int[][] image) {
+        assert(image != null);
+        assert(image.length != 0);
+
+        BinaryImage revealedImage = new BinaryImage(image[0].length, image.length);
+        for(int i = 0; i < image.length; ++i){
+            assert(image[i].length == revealedImage.width());
+            getLSBs(image[i], 0, image[i].length, revealedImage.words(), revealedImage.rowStart(i));
+        }
+        return revealedImage;
+    }
+
+    /**
+     * Reveal a packed binary image from a given image, 64 pixels per word
+     * @param image Image to reveal from
+     * @return binary representation of the hidden image
+     */
+    public static BinaryImage revealBWPacked(ImageBuffer image) {
+        assert(image != null);
+
+        BinaryImage revealedImage = new BinaryImage(image.width(), image.height());
+        revealBW(image, revealedImage);
+        return revealedImage;
+    }
+
+    /**
+     * Reveal a binary image from a given image into a caller supplied packed image
+     * @param image Image to reveal from
+     * @param dst image of the same size receiving the hidden image
+     */
+    public static void revealBW(ImageBuffer image, BinaryImage dst) {
+        assert(image != null && dst != null);
+        assert(image.width() == dst.width() && image.height() == dst.height());
+
+        for(int i = 0; i < image.height(); ++i)
+            getLSBs(image.data(), image.rowStart(i), image.width(), dst.words(), dst.rowStart(i));
+    }
+
+    // ============================================================================================
+    // =================================== PARALLEL METHODS =======================================
+    // ============================================================================================
+
+    /**
+     * Embed a binary image on another ARGB image (the cover), the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #embedBW(int[][], boolean[][])})
+     * @param cover Cover image
+     * @param load Embedded image
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static int[][] embedBWParallel(int[][] cover, boolean[][] load){
+        assert(cover != null && load != null);
+        assert ((cover.length != 0) && (load.length != 0));
+        assert(load.length <= cover.length);
+        assert(load[0].length <= cover[0].length);
+
+        int[][] embeddedBwImage = new int[cover.length][];
+        RowPartition.forEach(cover.length, cover[0].length, (from, to) -> embedBWRows(cover, load, embeddedBwImage, from, to));
+        return embeddedBwImage;
+    }
+
+    /**
+     * Reveal a binary image from a given image, the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #revealBW(int[][])})
+     * @param image Image to reveal from
+     * @return binary representation of the hidden image
+     */
+    public static boolean[][] revealBWParallel(int[][] image) {
+        assert(image != null);
+        assert(image.length != 0);
+        boolean[][] revealedImage = new boolean[image.length][];
+        RowPartition.forEach(image.length, image[0].length, (from, to) -> revealBWRows(image, revealedImage, from, to));
+        return revealedImage;
+    }
+
+    /**
+     * Embed a binary image on another ARGB image (the cover), the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #embedBW(ImageBuffer, ImageBuffer)})
+     * @param cover Cover image
+     * @param load Embedded image (1 for <code>true</code>, 0 for <code>false</code>)
+     * @return ARGB image with the image embedded on the cover
+     */
+    public static ImageBuffer embedBWParallel(ImageBuffer cover, ImageBuffer load){
+        assert(cover != null && load != null);
+        assert(load.height() <= cover.height());
+        assert(load.width() <= cover.width());
+
+        ImageBuffer embeddedBwImage = cover.copy();
+        RowPartition.forEach(load.height(), load.width(), (from, to) -> embedBWRows(embeddedBwImage, load, from, to));
+        return embeddedBwImage;
+    }
+
+    /**
+     * Reveal a binary image from a given image, the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #revealBW(ImageBuffer)})
+     * @param image Image to reveal from
+     * @return binary representation of the hidden image (1 for <code>true</code>, 0 for <code>false</code>)
+     */
+    public static ImageBuffer revealBWParallel(ImageBuffer image) {
+        assert(image != null);
+
+        ImageBuffer revealedImage = new ImageBuffer(image.width(), image.height());
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> revealBWRows(image, revealedImage, from, to));
         return revealedImage;
     }
 
@@ -0,0 +1,129 @@
+package ch.epfl.cs107.stegano;
+
+import ch.epfl.cs107.Helper;
+import ch.epfl.cs107.utils.ImageBuffer;
+
+import java.util.Arrays;
+
+import static ch.epfl.cs107.utils.Image.*;
+
+/**
+ * Steganography on image files larger than the memory.
+ * <p>
+ * The images are decoded, processed and written back band by band ({@link Helper#openImageStripes(String)},
+ * {@link Helper#writeImageStripes(String, int, int, Helper.StripeSource)}), so only a few stripes of
+ * {@link Helper#STRIPE_PIXELS} pixels are in memory at a time. The results are the same as reading the whole
+ * images with {@link Helper#readImageBuffer(String)} and calling the methods of {@link ImageSteganography} and
+ * {@link TextSteganography}. The stripes have a multiple of 8 rows, so every stripe carries a whole number of
+ * bytes of a text, and are read in order, so every image is decoded once (see {@link Helper.ImageStripes}).
+ * <p>
+ * All the paths are relative to the resource folder if not absolute, as in {@link Helper}.
+ */
+public final class StripedSteganography {
+
+    private StripedSteganography(){}
+
+    // ============================================================================================
+    // ===================================== EMBEDDING STRING =====================================
+    // ============================================================================================
+
+    /**
+     * Embed a String message in the <code>k</code> low bits of the pixels of an image file
+     * (see {@link TextSteganography#embedText(ImageBuffer, byte[], int)})
+     * @param coverPath Cover image
+     * @param message Embedded message
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link TextSteganography#MAX_BITS_PER_PIXEL}
+     * @param outputPath <b>PNG</b> file receiving the image with the message embedded
+     */
+    public static void embedText(String coverPath, byte[] message, int k, String outputPath) {
+        assert(message != null);
+        assert(1 <= k && k <= TextSteganography.MAX_BITS_PER_PIXEL);
+
+        try (final var cover = Helper.openImageStripes(coverPath)) {
+            Helper.writeImageStripes(outputPath, cover.width(), cover.height(), (y, rows) -> {
+                final var stripe = cover.read(y, rows);
+                //↓ y is a multiple of 8: the stripe starts on a byte of the message
+                final long from = y * (long) cover.width() * k / Byte.SIZE;
+                if (from < message.length) {
+                    //↓ The last stripe may end in the middle of a byte
+                    final long bits = (long) rows * cover.width() * k;
+                    final long to = Math.min(message.length, from + (bits + Byte.SIZE - 1) / Byte.SIZE);
+                    TextSteganography.embedTextInPlace(stripe, Arrays.copyOfRange(message, (int) from, (int) to), k);
+                }
+                return stripe;
+            });
+        }
+    }
+
+    /**
+     * Extract a String from the <code>k</code> low bits of the pixels of an image file, only decoding the
+     * stripes containing the message
+     * (see {@link TextSteganography#revealText(ImageBuffer, int)})
+     * @param imagePath Image to extract from
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link TextSteganography#MAX_BITS_PER_PIXEL}
+     * @param length number of bytes to extract, at most the capacity of the image
+     * @return extracted message
+     */
+    public static byte[] revealText(String imagePath, int k, int length) {
+        assert(1 <= k && k <= TextSteganography.MAX_BITS_PER_PIXEL);
+        assert(length >= 0);
+
+        try (final var image = Helper.openImageStripes(imagePath)) {
+            assert(length <= (long) image.width() * image.height() * k / Byte.SIZE);
+            final var message = new byte[length];
+            final int stripeHeight = Helper.stripeHeight(image.width());
+            int done = 0;
+            for (int y = 0; y < image.height() && done < length; y += stripeHeight) {
+                final var rows = Math.min(stripeHeight, image.height() - y);
+                final var part = TextSteganography.revealText(image.read(y, rows), k);
+                final var n = Math.min(part.length, length - done);
+                System.arraycopy(part, 0, message, done, n);
+                done += n;
+            }
+            return message;
+        }
+    }
+
+    // ============================================================================================
+    // ===================================== EMBEDDING IMAGE ======================================
+    // ============================================================================================
+
+    /**
+     * Embed an ARGB image file on another ARGB image file (the cover)
+     * (see {@link ImageSteganography#embedARGBInPlace(ImageBuffer, ImageBuffer, int)})
+     * @param coverPath Cover image
+     * @param argbImagePath Embedded image, not larger than the cover
+     * @param threshold threshold to use for binary conversion
+     * @param outputPath <b>PNG</b> file receiving the image with the image embedded
+     */
+    public static void embedARGB(String coverPath, String argbImagePath, int threshold, String outputPath) {
+        try (final var cover = Helper.openImageStripes(coverPath);
+             final var load = Helper.openImageStripes(argbImagePath)) {
+            assert(load.width() <= cover.width() && load.height() <= cover.height());
+            Helper.writeImageStripes(outputPath, cover.width(), cover.height(), (y, rows) -> {
+                final var stripe = cover.read(y, rows);
+                //↓ Embed the rows of the load in the matching rows of the cover
+                if (y < load.height())
+                    ImageSteganography.embedARGBInPlace(stripe, load.read(y, Math.min(rows, load.height() - y)), threshold);
+                return stripe;
+            });
+        }
+    }
+
+    /**
+     * Reveal a binary image from a given image file, as a black and white image
+     * (see {@link ImageSteganography#revealBWPacked(ImageBuffer)} and {@link ch.epfl.cs107.utils.Image#fromBinary(ch.epfl.cs107.utils.BinaryImage, ImageBuffer)})
+     * @param imagePath Image to reveal from
+     * @param outputPath <b>PNG</b> file receiving the black and white representation of the hidden image
+     */
+    public static void revealBW(String imagePath, String outputPath) {
+        try (final var image = Helper.openImageStripes(imagePath)) {
+            Helper.writeImageStripes(outputPath, image.width(), image.height(), (y, rows) -> {
+                final var stripe = image.read(y, rows);
+                fromBinary(ImageSteganography.revealBWPacked(stripe), stripe);
+                return stripe;
+            });
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package ch.epfl.cs107.stegano;
 
 import ch.epfl.cs107.Helper;
 import ch.epfl.cs107.utils.Bit;
+import ch.epfl.cs107.utils.BitVector;
+import ch.epfl.cs107.utils.ImageBuffer;
 
 import static ch.epfl.cs107.utils.Text.*;
 import static ch.epfl.cs107.utils.Image.*;
@@ -24,6 +26,9 @@ public class TextSteganography {
     // DO NOT CHANGE THIS, MORE ON THAT ON WEEK 7
     private TextSteganography(){}
 
+    /** Highest number of low bits of a pixel that can carry the message */
+    public static final int MAX_BITS_PER_PIXEL = 4;
+
     // ============================================================================================
     // =================================== EMBEDDING BIT ARRAY ====================================
     // ============================================================================================
@@ -72,7 +77,56 @@ public class TextSteganography {
         return extractedMessage;
     }
 
+    /**
+     * Embed a packed bitmap message in an ARGB image
+     * @param cover Cover image
+     * @param message Embedded message
+     * @return ARGB image with the message embedded
+     */
+    public static int[][] embedBitVector(int[][] cover, BitVector message) {
+        assert(cover != null && message != null);
+
+        int[][] bitVectorEmbedded = new int[cover.length][];
+        for(int i = 0; i < cover.length; ++i){
+            assert(cover[i] != null);
+            assert(cover[0].length == cover[i].length);
+            final int width = cover[0].length;
+            bitVectorEmbedded[i] = new int[width];
+            for(int j = 0; j < width; ++j){
+                final long index = (long) width * i + j;
+                bitVectorEmbedded[i][j] = index < message.size()
+                        ? embedInLSB(cover[i][j], message.get((int) index))
+                        : cover[i][j];
+            }
+        }
+        return bitVectorEmbedded;
+    }
+
+    /**
+     * Extract a packed bitmap from an image
+     * @param image Image to extract from
+     * @return extracted message
+     */
+    public static BitVector revealBitVector(int[][] image) {
+        assert(image != null);
+        if(image.length == 0) {return new BitVector(0);}
 
+        final int width = image[0].length;
+        BitVector extractedMessage = new BitVector(image.length * width);
+        for(int i = 0; i < image.length; ++i){
+            assert(image[i] != null);
+            assert(width == image[i].length);
+            //↓ The bits of the row are gathered in words of 64 bits
+            for(int j = 0; j < width; j += Long.SIZE){
+                final int count = Math.min(Long.SIZE, width - j);
+                long bits = 0;
+                for (int k = j; k < j + count; ++k)
+                    bits = (bits << 1) | (image[i][k] & 0b1);
+                extractedMessage.setBits(width * i + j, count, bits);
+            }
+        }
+        return extractedMessage;
+    }
 
     // ============================================================================================
     // ===================================== EMBEDDING STRING =====================================
@@ -80,22 +134,354 @@ public class TextSteganography {
 
     /**
      * Embed a String message in an ARGB image
+     * <p>
+     * Same result as {@link #embedBitArray(int[][], boolean[])} on {@link Bit#toBitArray(byte[])}, but the bits
+     * are read straight from the message bytes (most significant bit first) into the pixels' LSB
      * @param cover Cover image
      * @param message Embedded message
      * @return ARGB image with the message embedded
      */
     public static int[][] embedText(int[][] cover, byte[] message) {
-        boolean[]  messageEmbedded= Bit.toBitArray(message);
-        return embedBitArray(cover, messageEmbedded);
+        assert(cover != null && message != null);
+
+        final long bits = (long) message.length * Byte.SIZE;
+        int[][] textEmbedded = new int[cover.length][];
+        long bit = 0;
+        for(int i = 0; i < cover.length; ++i){
+            assert(cover[i] != null);
+            assert(cover[0].length == cover[i].length);
+            final int[] row = cover[i].clone();
+            for(int j = 0; j < row.length && bit < bits; ++j, ++bit){
+                final int b = (message[(int) (bit >>> 3)] >>> (Byte.SIZE - 1 - (int) (bit & 7))) & 0b1;
+                row[j] = (row[j] & ~0b1) | b;
+            }
+            textEmbedded[i] = row;
+        }
+        return textEmbedded;
     }
 
     /**
      * Extract a String from an image
+     * <p>
+     * Same result as {@link Bit#toBytes(boolean[])} on {@link #revealBitArray(int[][])}, but the bytes are
+     * assembled straight from the pixels' LSB
      * @param image Image to extract from
      * @return extracted message
      */
     public static byte[] revealText(int[][] image) {
-        boolean[] revealedBitArray = revealBitArray(image);
-        return Bit.toBytes(revealedBitArray);
+        assert(image != null);
+        if(image.length == 0) {return new byte[0];}
+
+        final int width = image[0].length;
+        byte[] extractedMessage = new byte[(int) ((long) image.length * width / Byte.SIZE)];
+        int value = 0;
+        long bit = 0;
+        for(int i = 0; i < image.length; ++i){
+            assert(image[i] != null);
+            assert(width == image[i].length);
+            for(int j = 0; j < width; ++j, ++bit){
+                value = (value << 1) | (image[i][j] & 0b1);
+                if ((bit & 7) == 7 && (bit >>> 3) < extractedMessage.length)
+                    extractedMessage[(int) (bit >>> 3)] = (byte) value;
+            }
+        }
+        return extractedMessage;
+    }
+
+    // ============================================================================================
+    // ================================= EMBEDDING IN K LOW BITS ==================================
+    // ============================================================================================
+
+    /**
+     * Number of bytes of message that an image can carry
+     * @param cover Cover image
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return the size (in bytes) of the longest message that {@link #embedText(int[][], byte[], int)} can embed,
+     * and the size of the message that {@link #revealText(int[][], int)} extracts
+     */
+    public static int capacity(int[][] cover, int k) {
+        assert(cover != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+        if(cover.length == 0) {return 0;}
+
+        return (int) ((long) cover.length * cover[0].length * k / Byte.SIZE);
+    }
+
+    /**
+     * Embed a String message in the <code>k</code> low bits of the pixels of an ARGB image, so the message
+     * takes <code>k</code> times fewer pixels
+     * <p>
+     * The bits of the message are taken most significant bit first, every pixel taking the next <code>k</code>
+     * ones (the first one in its bit <code>k - 1</code>). With <code>k = 1</code>, this is {@link #embedText(int[][], byte[])}
+     * @param cover Cover image
+     * @param message Embedded message, at most {@link #capacity(int[][], int)} bytes are embedded
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return ARGB image with the message embedded
+     */
+    public static int[][] embedText(int[][] cover, byte[] message, int k) {
+        assert(cover != null && message != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+        if (k == 1) {return embedText(cover, message);}
+
+        final long bits = (long) message.length * Byte.SIZE;
+        int[][] textEmbedded = new int[cover.length][];
+        long bit = 0;
+        for(int i = 0; i < cover.length; ++i){
+            assert(cover[i] != null);
+            assert(cover[0].length == cover[i].length);
+            final int[] row = cover[i].clone();
+            for(int j = 0; j < row.length && bit < bits; ++j, bit += k){
+                if (bits - bit >= k) {
+                    row[j] = embedInLowBits(row[j], readBits(message, bit, k), k);
+                } else {
+                    //↓ The last pixel only carries the first n of its k bits, the other ones are left untouched
+                    final int n = (int) (bits - bit);
+                    final int mask = ((1 << n) - 1) << (k - n);
+                    row[j] = (row[j] & ~mask) | (readBits(message, bit, n) << (k - n));
+                }
+            }
+            textEmbedded[i] = row;
+        }
+        return textEmbedded;
+    }
+
+    /**
+     * Extract a String from the <code>k</code> low bits of the pixels of an image
+     * (see {@link #embedText(int[][], byte[], int)})
+     * @param image Image to extract from
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return extracted message, of {@link #capacity(int[][], int)} bytes
+     */
+    public static byte[] revealText(int[][] image, int k) {
+        assert(image != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+        if (k == 1) {return revealText(image);}
+
+        byte[] extractedMessage = new byte[capacity(image, k)];
+        int value = 0;
+        int pending = 0;
+        int index = 0;
+        for(int i = 0; i < image.length && index < extractedMessage.length; ++i){
+            assert(image[i] != null);
+            assert(image[0].length == image[i].length);
+            for(int j = 0; j < image[i].length && index < extractedMessage.length; ++j){
+                value = (value << k) | getLowBits(image[i][j], k);
+                pending += k;
+                if (pending >= Byte.SIZE) {
+                    pending -= Byte.SIZE;
+                    extractedMessage[index++] = (byte) (value >>> pending);
+                }
+            }
+        }
+        return extractedMessage;
+    }
+
+    // ============================================================================================
+    // ================================== FLAT IMAGE METHODS ======================================
+    // ============================================================================================
+
+    /**
+     * Embed a bitmap message in an ARGB image
+     * @param cover Cover image
+     * @param message Embedded message
+     * @return ARGB image with the message embedded
+     */
+    public static ImageBuffer embedBitArray(ImageBuffer cover, boolean[] message) {
+        assert(cover != null && message != null);
+
+        ImageBuffer bitArrayEmbedded = cover.copy();
+        final int[] out = bitArrayEmbedded.data();
+        final int width = cover.width();
+        for(int i = 0; i < cover.height() && (long) width * i < message.length; ++i){
+            final int d = bitArrayEmbedded.rowStart(i);
+            for(int j = 0; j < width && width * i + j < message.length; ++j)
+                out[d + j] = embedInLSB(out[d + j], message[width * i + j]);
+        }
+        return bitArrayEmbedded;
+    }
+
+    /**
+     * Extract a bitmap from an image
+     * @param image Image to extract from
+     * @return extracted message
+     */
+    public static boolean[] revealBitArray(ImageBuffer image) {
+        assert(image != null);
+
+        final int width = image.width();
+        boolean[] extractedMessage = new boolean[width * image.height()];
+        final int[] src = image.data();
+        for(int i = 0; i < image.height(); ++i){
+            final int s = image.rowStart(i);
+            for(int j = 0; j < width; ++j)
+                extractedMessage[width * i + j] = getLSB(src[s + j]);
+        }
+        return extractedMessage;
+    }
+
+    /**
+     * Embed a packed bitmap message in an ARGB image
+     * @param cover Cover image
+     * @param message Embedded message
+     * @return ARGB image with the message embedded
+     */
+    public static ImageBuffer embedBitVector(ImageBuffer cover, BitVector message) {
+        assert(cover != null && message != null);
+
+        ImageBuffer bitVectorEmbedded = cover.copy();
+        final int[] out = bitVectorEmbedded.data();
+        final int width = cover.width();
+        for(int i = 0; i < cover.height() && (long) width * i < message.size(); ++i){
+            final int d = bitVectorEmbedded.rowStart(i);
+            for(int j = 0; j < width && width * i + j < message.size(); ++j)
+                out[d + j] = embedInLSB(out[d + j], message.get(width * i + j));
+        }
+        return bitVectorEmbedded;
+    }
+
+    /**
+     * Extract a packed bitmap from an image
+     * @param image Image to extract from
+     * @return extracted message
+     */
+    public static BitVector revealBitVector(ImageBuffer image) {
+        assert(image != null);
+
+        final int width = image.width();
+        BitVector extractedMessage = new BitVector(width * image.height());
+        final int[] src = image.data();
+        for(int i = 0; i < image.height(); ++i){
+            final int s = image.rowStart(i);
+            //↓ The bits of the row are gathered in words of 64 bits
+            for(int j = 0; j < width; j += Long.SIZE){
+                final int count = Math.min(Long.SIZE, width - j);
+                long bits = 0;
+                for (int k = s + j; k < s + j + count; ++k)
+                    bits = (bits << 1) | (src[k] & 0b1);
+                extractedMessage.setBits(width * i + j, count, bits);
+            }
+        }
+        return extractedMessage;
+    }
+
+    /**
+     * Embed a String message in an ARGB image
+     * @param cover Cover image
+     * @param message Embedded message
+     * @return ARGB image with the message embedded
+     */
+    public static ImageBuffer embedText(ImageBuffer cover, byte[] message) {
+        return embedText(cover, message, 1);
+    }
+
+    /**
+     * Extract a String from an image
+     * @param image Image to extract from
+     * @return extracted message
+     */
+    public static byte[] revealText(ImageBuffer image) {
+        return revealText(image, 1);
+    }
+
+    /**
+     * Number of bytes of message that an image can carry
+     * @param cover Cover image
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return the size (in bytes) of the longest message that {@link #embedText(ImageBuffer, byte[], int)} can embed,
+     * and the size of the message that {@link #revealText(ImageBuffer, int)} extracts
+     */
+    public static int capacity(ImageBuffer cover, int k) {
+        assert(cover != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+
+        return (int) ((long) cover.width() * cover.height() * k / Byte.SIZE);
+    }
+
+    /**
+     * Embed a String message in the <code>k</code> low bits of the pixels of an ARGB image
+     * (see {@link #embedText(int[][], byte[], int)})
+     * @param cover Cover image
+     * @param message Embedded message, at most {@link #capacity(ImageBuffer, int)} bytes are embedded
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return ARGB image with the message embedded
+     */
+    public static ImageBuffer embedText(ImageBuffer cover, byte[] message, int k) {
+        assert(cover != null);
+
+        ImageBuffer textEmbedded = cover.copy();
+        embedTextInPlace(textEmbedded, message, k);
+        return textEmbedded;
+    }
+
+    /**
+     * Embed a String message in the <code>k</code> low bits of the pixels of an ARGB image, overwriting the image
+     * (see {@link #embedText(ImageBuffer, byte[], int)})
+     * @param image Cover image, overwritten with the message embedded
+     * @param message Embedded message, at most {@link #capacity(ImageBuffer, int)} bytes are embedded
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     */
+    public static void embedTextInPlace(ImageBuffer image, byte[] message, int k) {
+        assert(image != null && message != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+
+        final long bits = (long) message.length * Byte.SIZE;
+        final int[] out = image.data();
+        long bit = 0;
+        for(int i = 0; i < image.height() && bit < bits; ++i){
+            final int d = image.rowStart(i);
+            for(int j = d; j < d + image.width() && bit < bits; ++j, bit += k){
+                if (bits - bit >= k) {
+                    out[j] = embedInLowBits(out[j], readBits(message, bit, k), k);
+                } else {
+                    //↓ The last pixel only carries the first n of its k bits, the other ones are left untouched
+                    final int n = (int) (bits - bit);
+                    final int mask = ((1 << n) - 1) << (k - n);
+                    out[j] = (out[j] & ~mask) | (readBits(message, bit, n) << (k - n));
+                }
+            }
+        }
+    }
+
+    /**
+     * Extract a String from the <code>k</code> low bits of the pixels of an image
+     * (see {@link #embedText(ImageBuffer, byte[], int)})
+     * @param image Image to extract from
+     * @param k number of low bits of every pixel carrying the message, between 1 and {@link #MAX_BITS_PER_PIXEL}
+     * @return extracted message, of {@link #capacity(ImageBuffer, int)} bytes
+     */
+    public static byte[] revealText(ImageBuffer image, int k) {
+        assert(image != null);
+        assert(1 <= k && k <= MAX_BITS_PER_PIXEL);
+
+        byte[] extractedMessage = new byte[capacity(image, k)];
+        final int[] src = image.data();
+        int value = 0;
+        int pending = 0;
+        int index = 0;
+        for(int i = 0; i < image.height() && index < extractedMessage.length; ++i){
+            final int s = image.rowStart(i);
+            for(int j = s; j < s + image.width() && index < extractedMessage.length; ++j){
+                value = (value << k) | getLowBits(src[j], k);
+                pending += k;
+                if (pending >= Byte.SIZE) {
+                    pending -= Byte.SIZE;
+                    extractedMessage[index++] = (byte) (value >>> pending);
+                }
+            }
+        }
+        return extractedMessage;
+    }
+
+    /**
+     * Read <code>n</code> bits (at most 8) of a message, most significant bit first
+     * @return the bits, in the <code>n</code> lowest bits of the result
+     */
+    private static int readBits(byte[] message, long bit, int n) {
+        final int index = (int) (bit >>> 3);
+        //↓ The bits may straddle two bytes
+        final int high = message[index] & 0xFF;
+        final int low = index + 1 < message.length ? message[index + 1] & 0xFF : 0;
+        final int window = (high << Byte.SIZE) | low;
+        return (window >>> (2 * Byte.SIZE - (int) (bit & 7) - n)) & ((1 << n) - 1);
     }
 }
@@ -0,0 +1,159 @@
+package ch.epfl.cs107.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary image packed in <code>long</code> words, one bit per pixel (a <code>boolean[][]</code> takes one byte
+ * per pixel, and an {@link ImageBuffer} four).
+ * <p>
+ * Every row starts on a new word: the pixel <code>(row, col)</code> is the bit <code>63 - col % 64</code> of the
+ * word <code>row * wordsPerRow() + col / 64</code> of {@link #words()}, as the bits of {@link BitVector}. The bits
+ * after the last column of a row are always 0, so 64 pixels are thresholded, extracted or embedded per word.
+ */
+public final class BinaryImage {
+
+    private static final int WORD_SIZE = Long.SIZE;
+
+    private final long[] words;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+
+    /**
+     * Build an image of the given size, all its pixels being <code>false</code>
+     * @param width number of columns
+     * @param height number of rows
+     */
+    public BinaryImage(int width, int height) {
+        assert (width >= 0 && height >= 0);
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow(width);
+        assert ((long) wordsPerRow * height <= Integer.MAX_VALUE);
+        this.words = new long[wordsPerRow * height];
+    }
+
+    /**
+     * @param width number of columns
+     * @return the number of words of a row of <code>width</code> pixels
+     */
+    public static int wordsPerRow(int width) {
+        return (width + WORD_SIZE - 1) / WORD_SIZE;
+    }
+
+    // ============================================================================================
+    // ======================================== ADAPTERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Pack a binary image
+     * @param image image whose rows all have the same length
+     * @return the packed image
+     */
+    public static BinaryImage fromArray(boolean[][] image) {
+        assert (image != null);
+        final int height = image.length;
+        final int width = height == 0 ? 0 : image[0].length;
+        final var packed = new BinaryImage(width, height);
+        for (int i = 0; i < height; ++i) {
+            assert (image[i] != null && image[i].length == width);
+            for (int j = 0; j < width; ++j)
+                if (image[i][j])
+                    packed.words[i * packed.wordsPerRow + j / WORD_SIZE] |= Long.MIN_VALUE >>> (j % WORD_SIZE);
+        }
+        return packed;
+    }
+
+    /**
+     * @return the pixels of this image in the <code>boolean[][]</code> format
+     */
+    public boolean[][] toArray() {
+        final var image = new boolean[height][width];
+        for (int i = 0; i < height; ++i)
+            for (int j = 0; j < width; ++j)
+                image[i][j] = get(i, j);
+        return image;
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESS ============================================
+    // ============================================================================================
+
+    /**
+     * @return the number of columns
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the number of words of every row
+     */
+    public int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @implNote the array is not copied
+     * @return the words containing the pixels, row after row
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * @param row index of the row
+     * @return the index of the first word of the row in {@link #words()}
+     */
+    public int rowStart(int row) {
+        assert (0 <= row && row < height);
+        return row * wordsPerRow;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @return the value of the pixel <code>(row, col)</code>
+     */
+    public boolean get(int row, int col) {
+        assert (0 <= row && row < height && 0 <= col && col < width);
+        return (words[row * wordsPerRow + col / WORD_SIZE] << (col % WORD_SIZE)) < 0;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @param value new value of the pixel <code>(row, col)</code>
+     */
+    public void set(int row, int col, boolean value) {
+        assert (0 <= row && row < height && 0 <= col && col < width);
+        final long mask = Long.MIN_VALUE >>> (col % WORD_SIZE);
+        if (value)
+            words[row * wordsPerRow + col / WORD_SIZE] |= mask;
+        else
+            words[row * wordsPerRow + col / WORD_SIZE] &= ~mask;
+    }
+
+    // ============================================================================================
+    // ======================================== OBJECT ============================================
+    // ============================================================================================
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BinaryImage that && width == that.width && height == that.height
+                && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(words) + width) + height;
+    }
+
+}
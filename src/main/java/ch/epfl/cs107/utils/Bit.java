@@ -39,9 +39,9 @@ public final class Bit {
         assert (0<=pos && pos<Integer.SIZE);
 
         if (m) {
-            return value | (int) Math.pow(2, pos);
+            return value | (1 << pos);
         } else {
-            return value & (~ (int) Math.pow(2, pos));
+            return value & ~(1 << pos);
         }
     }
 
@@ -80,6 +80,35 @@ public final class Bit {
         return getXthBit(value, 0);
     }
 
+    /**
+     * Embed the <code>k</code> lowest bits of <code>bits</code> in the <code>k</code> lowest bits of a value,
+     * as {@link #embedInXthBit(int, boolean, int)} would do bit by bit
+     * <p>
+     * @param value value to embed in
+     * @param bits bits to embed, in their <code>k</code> lowest bits
+     * @param k number of bits to change
+     * @return embedded value
+     */
+    public static int embedInLowBits(int value, int bits, int k) {
+        assert (0<k && k<Integer.SIZE);
+
+        int mask = (1 << k) - 1;
+        return (value & ~mask) | (bits & mask);
+    }
+
+    /**
+     * Extract the <code>k</code> lowest bits from a given value, as {@link #getXthBit(int, int)} would do bit by bit
+     * <p>
+     * @param value value to extract from
+     * @param k number of bits to extract
+     * @return the bits, in the <code>k</code> lowest bits of the result
+     */
+    public static int getLowBits(int value, int k) {
+        assert (0<k && k<Integer.SIZE);
+
+        return value & ((1 << k) - 1);
+    }
+
     // ============================================================================================
     // ==================================== BYTE MANIPULATION =====================================
     // ============================================================================================
@@ -160,15 +189,77 @@ public final class Bit {
         return (byte) sum;
     }
 
+    /**
+     * Convert a boolean array to a byte array, the trailing bits (less than a byte) being ignored
+     * @param bitArray bit array representation to convert
+     * @return the byte representation of the bit array
+     */
     public static byte[] toBytes(boolean[] bitArray){
         assert (bitArray != null);
 
         byte[] byteArray = new byte[bitArray.length/Byte.SIZE]; //Integer division to avoid reading any trailing bits
         for (int i = 0; i < byteArray.length; ++i) {
-            boolean[] charAsBitArray = java.util.Arrays.copyOfRange(bitArray, Byte.SIZE*i, Byte.SIZE*(i+1));
-            byteArray[i] = Bit.toByte(charAsBitArray);
+            // Same as toByte on the 8 bits of the byte, without copying them
+            int value = 0;
+            for (int j = Byte.SIZE*i; j < Byte.SIZE*(i+1); ++j)
+                value = (value << 1) | (bitArray[j] ? 1 : 0);
+            byteArray[i] = (byte) value;
         }
 
         return byteArray;
     }
+
+    // ============================================================================================
+    // ===================================== PACKED BITS ==========================================
+    // ============================================================================================
+
+    /**
+     * Convert a given byte array into a {@link BitVector}, eight times smaller than {@link #toBitArray(byte[])}
+     * @param byteArray array to convert
+     * @return byte array in the <b>bit vector</b> format
+     */
+    public static BitVector toBitVector(byte[] byteArray){
+        return BitVector.fromBytes(byteArray);
+    }
+
+    /**
+     * Convert a {@link BitVector} to a byte array, the trailing bits (less than a byte) being ignored
+     * @param bitVector bit vector to convert
+     * @return the byte representation of the bit vector
+     */
+    public static byte[] toBytes(BitVector bitVector){
+        assert (bitVector != null);
+        return bitVector.toBytes();
+    }
+
+    /**
+     * Pack the LSB of consecutive values, 64 per word, as the rows of a {@link BinaryImage}
+     * @param values array containing the values
+     * @param from index of the first value
+     * @param count number of values
+     * @param words array receiving the bits, the LSB of <code>values[from + i]</code> being the bit
+     *              <code>63 - i % 64</code> of <code>words[wordsFrom + i / 64]</code> (the bits after <code>count</code> are set to 0)
+     * @param wordsFrom index of the first word
+     */
+    public static void getLSBs(int[] values, int from, int count, long[] words, int wordsFrom){
+        assert (values != null && words != null);
+        assert (0 <= from && 0 <= count && from + count <= values.length);
+        assert (0 <= wordsFrom && wordsFrom + BinaryImage.wordsPerRow(count) <= words.length);
+        PixelEngine.current().lowBits(values, from, count, words, wordsFrom);
+    }
+
+    /**
+     * Embed packed bits in the LSB of consecutive values, 64 per word read (see {@link #getLSBs(int[], int, int, long[], int)})
+     * @param words array containing the bits
+     * @param wordsFrom index of the first word
+     * @param count number of values
+     * @param values array receiving the bits
+     * @param from index of the first value
+     */
+    public static void embedInLSBs(long[] words, int wordsFrom, int count, int[] values, int from){
+        assert (values != null && words != null);
+        assert (0 <= from && 0 <= count && from + count <= values.length);
+        assert (0 <= wordsFrom && wordsFrom + BinaryImage.wordsPerRow(count) <= words.length);
+        PixelEngine.current().embedLowBits(words, wordsFrom, count, values, from);
+    }
 }
@@ -0,0 +1,196 @@
+package ch.epfl.cs107.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fixed size sequence of bits packed in <code>long</code> words, one bit per bit (a <code>boolean[]</code>
+ * takes one byte per bit).
+ * <p>
+ * The bits are in the same order as the bit arrays of {@link Bit}: the bit <code>i</code> is the bit
+ * <code>63 - i % 64</code> of the word <code>i / 64</code>, so the bytes of {@link #fromBytes(byte[])} are
+ * stored most significant bit first and 8 of them are converted at once as a big endian <code>long</code>.
+ */
+public final class BitVector {
+
+    /** View of a <code>byte[]</code> as big endian <code>long</code> words, at any offset */
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final int WORD_SIZE = Long.SIZE;
+
+    private final long[] words;
+    private final int size;
+
+    /**
+     * Build a vector of <code>size</code> bits, all <code>false</code>
+     * @param size number of bits
+     */
+    public BitVector(int size) {
+        assert (size >= 0);
+        this.size = size;
+        this.words = new long[(int) ((size + (long) WORD_SIZE - 1) / WORD_SIZE)];
+    }
+
+    // ============================================================================================
+    // ====================================== CONVERSIONS =========================================
+    // ============================================================================================
+
+    /**
+     * Convert a byte array into a bit vector, 8 bytes at a time
+     * @param bytes array to convert
+     * @return the bits of the bytes, most significant bit first
+     * @see Bit#toBitArray(byte[])
+     */
+    public static BitVector fromBytes(byte[] bytes) {
+        assert (bytes != null);
+        final var vector = new BitVector(bytes.length * Byte.SIZE);
+        final var words = vector.words;
+        int w = 0;
+        for (; w < bytes.length / Long.BYTES; ++w)
+            words[w] = (long) LONG.get(bytes, w * Long.BYTES);
+        //↓ Remaining bytes, at the top of the last word
+        for (int i = w * Long.BYTES, shift = WORD_SIZE - Byte.SIZE; i < bytes.length; ++i, shift -= Byte.SIZE)
+            words[w] |= (bytes[i] & 0xFFL) << shift;
+        return vector;
+    }
+
+    /**
+     * Convert a bit array into a bit vector
+     * @param bitArray array to convert
+     * @return bit vector with the same bits
+     */
+    public static BitVector fromBitArray(boolean[] bitArray) {
+        assert (bitArray != null);
+        final var vector = new BitVector(bitArray.length);
+        for (int i = 0; i < bitArray.length; ++i)
+            if (bitArray[i])
+                vector.words[i / WORD_SIZE] |= Long.MIN_VALUE >>> (i % WORD_SIZE);
+        return vector;
+    }
+
+    /**
+     * Convert the vector into bytes, 8 bytes at a time. The trailing bits (less than a byte) are ignored
+     * @return the bytes of the vector
+     * @see Bit#toBytes(boolean[])
+     */
+    public byte[] toBytes() {
+        final var bytes = new byte[size / Byte.SIZE];
+        int w = 0;
+        for (; w < bytes.length / Long.BYTES; ++w)
+            LONG.set(bytes, w * Long.BYTES, words[w]);
+        for (int i = w * Long.BYTES, shift = WORD_SIZE - Byte.SIZE; i < bytes.length; ++i, shift -= Byte.SIZE)
+            bytes[i] = (byte) (words[w] >>> shift);
+        return bytes;
+    }
+
+    /**
+     * @return the bits of the vector in the <b>bit array</b> format
+     */
+    public boolean[] toBitArray() {
+        final var bitArray = new boolean[size];
+        for (int i = 0; i < size; ++i)
+            bitArray[i] = get(i);
+        return bitArray;
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESS ============================================
+    // ============================================================================================
+
+    /**
+     * @return the number of bits of the vector
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index index of the bit
+     * @return <code>true</code> if the bit is '1' and <code>false</code> otherwise
+     */
+    public boolean get(int index) {
+        assert (0 <= index && index < size);
+        return (words[index / WORD_SIZE] << (index % WORD_SIZE)) < 0;
+    }
+
+    /**
+     * @param index index of the bit
+     * @param value <code>true</code> to set 1, <code>false</code> to set 0
+     */
+    public void set(int index, boolean value) {
+        assert (0 <= index && index < size);
+        final long mask = Long.MIN_VALUE >>> (index % WORD_SIZE);
+        if (value)
+            words[index / WORD_SIZE] |= mask;
+        else
+            words[index / WORD_SIZE] &= ~mask;
+    }
+
+    /**
+     * Read up to 64 consecutive bits at once
+     * @param from index of the first bit
+     * @param count number of bits, between 0 and 64
+     * @return the bits, the bit <code>from</code> being the most significant of the <code>count</code> lowest bits
+     */
+    public long getBits(int from, int count) {
+        assert (0 <= count && count <= WORD_SIZE);
+        assert (0 <= from && from <= size - count);
+        if (count == 0)
+            return 0;
+        final int w = from / WORD_SIZE;
+        final int offset = from % WORD_SIZE;
+        //↓ The bits, at the top of a word
+        long bits = words[w] << offset;
+        if (offset + count > WORD_SIZE)
+            bits |= words[w + 1] >>> (WORD_SIZE - offset);
+        return bits >>> (WORD_SIZE - count);
+    }
+
+    /**
+     * Write up to 64 consecutive bits at once
+     * @param from index of the first bit
+     * @param count number of bits, between 0 and 64
+     * @param bits the bits, the bit <code>from</code> being the most significant of the <code>count</code> lowest bits
+     */
+    public void setBits(int from, int count, long bits) {
+        assert (0 <= count && count <= WORD_SIZE);
+        assert (0 <= from && from <= size - count);
+        if (count == 0)
+            return;
+        final int w = from / WORD_SIZE;
+        final int offset = from % WORD_SIZE;
+        //↓ The bits and their mask, at the top of a word
+        final long top = bits << (WORD_SIZE - count);
+        final long mask = -1L << (WORD_SIZE - count);
+        words[w] = (words[w] & ~(mask >>> offset)) | (top >>> offset);
+        if (offset + count > WORD_SIZE) {
+            final int shift = WORD_SIZE - offset;
+            words[w + 1] = (words[w + 1] & ~(mask << shift)) | (top << shift);
+        }
+    }
+
+    // ============================================================================================
+    // ======================================== OBJECT ============================================
+    // ============================================================================================
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BitVector that && size == that.size && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(words) + size;
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder(size);
+        for (int i = 0; i < size; ++i)
+            builder.append(get(i) ? '1' : '0');
+        return builder.toString();
+    }
+
+}
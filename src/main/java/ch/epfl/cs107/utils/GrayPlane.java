@@ -0,0 +1,236 @@
+package ch.epfl.cs107.utils;
+
+/**
+ * Gray scale image stored in a single flat <code>byte[]</code>, one byte per pixel (an {@link ImageBuffer}
+ * takes four).
+ * <p>
+ * The gray scale <code>(0 to 255)</code> of the pixel <code>(row, col)</code> is the unsigned byte at
+ * <code>offset + row * stride + col</code> of {@link #data()}, with the same views as {@link ImageBuffer}:
+ * a plane owning its array has <code>stride == width</code>, while the {@link #row(int)} and
+ * {@link #region(int, int, int, int)} views share the array of their parent.
+ */
+public final class GrayPlane {
+
+    private final byte[] data;
+    private final int offset;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    /**
+     * Build a plane of the given size, all its pixels being black (0)
+     * @param width number of columns
+     * @param height number of rows
+     */
+    public GrayPlane(int width, int height) {
+        this(new byte[checkedSize(width, height)], 0, width, height, width);
+    }
+
+    private GrayPlane(byte[] data, int offset, int width, int height, int stride) {
+        this.data = data;
+        this.offset = offset;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    /**
+     * View an array as a gray scale image, without copying it
+     * @param data gray scales, row after row
+     * @param width number of columns
+     * @param height number of rows
+     * @return the image
+     */
+    public static GrayPlane wrap(byte[] data, int width, int height) {
+        return wrap(data, 0, width, height, width);
+    }
+
+    /**
+     * View a part of an array as a gray scale image, without copying it
+     * @param data array containing the gray scales
+     * @param offset index of the pixel <code>(0, 0)</code> in <code>data</code>
+     * @param width number of columns
+     * @param height number of rows
+     * @param stride distance in <code>data</code> between two pixels of the same column on consecutive rows
+     * @return the image
+     */
+    public static GrayPlane wrap(byte[] data, int offset, int width, int height, int stride) {
+        assert (data != null);
+        assert (width >= 0 && height >= 0 && stride >= width);
+        assert (offset >= 0 && (height == 0 || offset + (long) (height - 1) * stride + width <= data.length));
+        return new GrayPlane(data, offset, width, height, stride);
+    }
+
+    private static int checkedSize(int width, int height) {
+        assert (width >= 0 && height >= 0);
+        assert ((long) width * height <= Integer.MAX_VALUE);
+        return width * height;
+    }
+
+    // ============================================================================================
+    // ======================================== ADAPTERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Copy a gray scale image into a plane
+     * @param image image whose rows all have the same length, with gray scales between 0 and 255
+     * @return a copy of the image
+     */
+    public static GrayPlane fromArray(int[][] image) {
+        assert (image != null);
+        final int height = image.length;
+        final int width = height == 0 ? 0 : image[0].length;
+        final var plane = new GrayPlane(width, height);
+        for (int i = 0; i < height; ++i) {
+            assert (image[i] != null && image[i].length == width);
+            for (int j = 0; j < width; ++j) {
+                assert (0 <= image[i][j] && image[i][j] <= 255);
+                plane.data[i * width + j] = (byte) image[i][j];
+            }
+        }
+        return plane;
+    }
+
+    /**
+     * @return a copy of this image in the <code>int[][]</code> gray scale format
+     */
+    public int[][] toArray() {
+        final var image = new int[height][width];
+        for (int i = 0; i < height; ++i) {
+            final int from = rowStart(i);
+            for (int j = 0; j < width; ++j)
+                image[i][j] = Byte.toUnsignedInt(data[from + j]);
+        }
+        return image;
+    }
+
+    /**
+     * @return a copy of this image owning its own array (<code>stride == width</code>)
+     */
+    public GrayPlane copy() {
+        final var copy = new GrayPlane(width, height);
+        for (int i = 0; i < height; ++i)
+            System.arraycopy(data, rowStart(i), copy.data, i * width, width);
+        return copy;
+    }
+
+    // ============================================================================================
+    // ========================================= VIEWS ============================================
+    // ============================================================================================
+
+    /**
+     * @param row index of the row
+     * @return a view of a single row of this image
+     */
+    public GrayPlane row(int row) {
+        return region(row, 0, width, 1);
+    }
+
+    /**
+     * @param row index of the first row of the region
+     * @param col index of the first column of the region
+     * @param width number of columns of the region
+     * @param height number of rows of the region
+     * @return a view of a rectangle of this image
+     */
+    public GrayPlane region(int row, int col, int width, int height) {
+        assert (0 <= row && 0 <= height && row + height <= this.height);
+        assert (0 <= col && 0 <= width && col + width <= this.width);
+        return new GrayPlane(data, offset + row * stride + col, width, height, stride);
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESS ============================================
+    // ============================================================================================
+
+    /**
+     * @return the number of columns
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the distance in {@link #data()} between two pixels of the same column on consecutive rows
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return the index of the pixel <code>(0, 0)</code> in {@link #data()}
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @implNote the array is not copied, and may be shared with other views
+     * @return the array containing the gray scales, as unsigned bytes
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    /**
+     * @param row index of the row
+     * @return the index of the first pixel of the row in {@link #data()}
+     */
+    public int rowStart(int row) {
+        assert (0 <= row && row < height);
+        return offset + row * stride;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @return the index of the pixel <code>(row, col)</code> in {@link #data()}
+     */
+    public int index(int row, int col) {
+        assert (0 <= row && row < height && 0 <= col && col < width);
+        return offset + row * stride + col;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @return the gray scale of the pixel <code>(row, col)</code>, between 0 and 255
+     */
+    public int get(int row, int col) {
+        return Byte.toUnsignedInt(data[index(row, col)]);
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @param gray new gray scale of the pixel <code>(row, col)</code>, between 0 and 255
+     */
+    public void set(int row, int col, int gray) {
+        assert (0 <= gray && gray <= 255);
+        data[index(row, col)] = (byte) gray;
+    }
+
+    /**
+     * @param other another image
+     * @return whether both images have the same size
+     */
+    public boolean sameSize(GrayPlane other) {
+        return other != null && width == other.width && height == other.height;
+    }
+
+    /**
+     * @param other another image
+     * @return whether both images have the same size
+     */
+    public boolean sameSize(ImageBuffer other) {
+        return other != null && width == other.width() && height == other.height();
+    }
+
+}
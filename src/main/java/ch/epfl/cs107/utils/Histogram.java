@@ -0,0 +1,258 @@
+package ch.epfl.cs107.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of the 256 levels of a channel of an image, and the thresholds for {@link Image#binary(int, int)}
+ * computed from it.
+ * <p>
+ * The histograms are built in a single pass over the pixels, the rows being split as in {@link RowPartition}:
+ * every task counts its rows in its own <code>int[256]</code>, merged in the result once its rows are done.
+ * The thresholds then only cost O(256), instead of trying {@link Image#toBinary(int[][], int)} with several
+ * thresholds:
+ * <pre>{@code
+ * final var threshold = Histogram.channels(argb).gray().otsuThreshold();
+ * final var hidden = ImageSteganography.embedARGB(cover, argb, threshold);
+ * }</pre>
+ */
+public final class Histogram {
+
+    /** Number of levels of a channel */
+    public static final int LEVELS = 256;
+
+    private final int[] counts;
+
+    private Histogram(int[] counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * Histograms of the channels of an ARGB image
+     * @param red histogram of the red channel
+     * @param green histogram of the green channel
+     * @param blue histogram of the blue channel
+     * @param gray histogram of the gray scales ({@link Image#gray(int)})
+     */
+    public record Channels(Histogram red, Histogram green, Histogram blue, Histogram gray) {}
+
+    // ============================================================================================
+    // ======================================== BUILDING ==========================================
+    // ============================================================================================
+
+    /**
+     * @param image image in ARGB format
+     * @return the histograms of the channels and of the gray scales of the image
+     */
+    public static Channels channels(ImageBuffer image) {
+        assert (image != null);
+        final var counts = new int[4][LEVELS];
+        final int[] src = image.data();
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> {
+            final var local = new int[4][LEVELS];
+            for (int i = from; i < to; ++i)
+                count(src, image.rowStart(i), image.width(), local);
+            merge(counts, local);
+        });
+        return fromCounts(counts);
+    }
+
+    /**
+     * @param image image in ARGB format, whose rows all have the same length
+     * @return the histograms of the channels and of the gray scales of the image
+     */
+    public static Channels channels(int[][] image) {
+        assert (image != null);
+        final var counts = new int[4][LEVELS];
+        RowPartition.forEach(image.length, image.length == 0 ? 0 : image[0].length, (from, to) -> {
+            final var local = new int[4][LEVELS];
+            for (int i = from; i < to; ++i)
+                count(image[i], 0, image[i].length, local);
+            merge(counts, local);
+        });
+        return fromCounts(counts);
+    }
+
+    /**
+     * @param image image in gray scale representation
+     * @return the histogram of the gray scales
+     */
+    public static Histogram ofGray(ImageBuffer image) {
+        assert (image != null);
+        final var counts = new int[1][LEVELS];
+        final int[] src = image.data();
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> {
+            final var local = new int[1][LEVELS];
+            for (int i = from; i < to; ++i)
+                for (int j = image.rowStart(i), end = j + image.width(); j < end; ++j)
+                    ++local[0][src[j]];
+            merge(counts, local);
+        });
+        return new Histogram(counts[0]);
+    }
+
+    /**
+     * @param image image in gray scale representation, whose rows all have the same length
+     * @return the histogram of the gray scales
+     */
+    public static Histogram ofGray(int[][] image) {
+        assert (image != null);
+        final var counts = new int[1][LEVELS];
+        RowPartition.forEach(image.length, image.length == 0 ? 0 : image[0].length, (from, to) -> {
+            final var local = new int[1][LEVELS];
+            for (int i = from; i < to; ++i)
+                for (int gray : image[i])
+                    ++local[0][gray];
+            merge(counts, local);
+        });
+        return new Histogram(counts[0]);
+    }
+
+    /**
+     * @param image gray scale plane
+     * @return the histogram of the gray scales
+     */
+    public static Histogram ofGray(GrayPlane image) {
+        assert (image != null);
+        final var counts = new int[1][LEVELS];
+        final byte[] src = image.data();
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> {
+            final var local = new int[1][LEVELS];
+            for (int i = from; i < to; ++i)
+                for (int j = image.rowStart(i), end = j + image.width(); j < end; ++j)
+                    ++local[0][src[j] & 0xFF];
+            merge(counts, local);
+        });
+        return new Histogram(counts[0]);
+    }
+
+    /**
+     * Count the red, green, blue and gray levels of a run of ARGB pixels
+     */
+    private static void count(int[] src, int from, int len, int[][] counts) {
+        final int[] red = counts[0], green = counts[1], blue = counts[2], gray = counts[3];
+        for (int j = from; j < from + len; ++j) {
+            final int r = src[j] >>> 16 & 0xFF, g = src[j] >>> 8 & 0xFF, b = src[j] & 0xFF;
+            ++red[r];
+            ++green[g];
+            ++blue[b];
+            ++gray[(r + g + b) / 3];
+        }
+    }
+
+    /**
+     * Add the counts of a task to the result, the tasks of an image merging one after the other
+     */
+    private static void merge(int[][] counts, int[][] local) {
+        synchronized (counts) {
+            for (int c = 0; c < counts.length; ++c)
+                for (int level = 0; level < LEVELS; ++level)
+                    counts[c][level] += local[c][level];
+        }
+    }
+
+    private static Channels fromCounts(int[][] counts) {
+        return new Channels(new Histogram(counts[0]), new Histogram(counts[1]),
+                            new Histogram(counts[2]), new Histogram(counts[3]));
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESS ============================================
+    // ============================================================================================
+
+    /**
+     * @param level level between 0 and 255
+     * @return the number of pixels of the level
+     */
+    public int count(int level) {
+        assert (0 <= level && level < LEVELS);
+        return counts[level];
+    }
+
+    /**
+     * @return a copy of the counts of the 256 levels
+     */
+    public int[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return the number of pixels
+     */
+    public long total() {
+        long total = 0;
+        for (int count : counts)
+            total += count;
+        return total;
+    }
+
+    // ============================================================================================
+    // ======================================= THRESHOLDS =========================================
+    // ============================================================================================
+
+    /**
+     * Otsu's threshold: the threshold splitting the levels in the two classes (<code>false</code> under the
+     * threshold, <code>true</code> from it, as {@link Image#binary(int, int)}) of largest between-class variance
+     * @return the threshold, between 1 and 255, or 0 (every pixel <code>true</code>) if there are less than two levels
+     */
+    public int otsuThreshold() {
+        long total = 0, sum = 0;
+        for (int level = 0; level < LEVELS; ++level) {
+            total += counts[level];
+            sum += (long) level * counts[level];
+        }
+        int threshold = 0;
+        double best = 0;
+        //↓ Pixels and sum of the levels under the threshold
+        long under = 0, underSum = 0;
+        for (int t = 1; t < LEVELS; ++t) {
+            under += counts[t - 1];
+            underSum += (long) (t - 1) * counts[t - 1];
+            final long over = total - under;
+            if (under == 0 || over == 0)
+                continue;
+            //↓ under * over * (meanUnder - meanOver)^2, up to a factor total^2
+            final double difference = (double) underSum * total - (double) sum * under;
+            final double variance = difference / under * difference / over;
+            if (variance > best) {
+                best = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Threshold leaving a given fraction of the pixels under it (<code>false</code> for {@link Image#binary(int, int)})
+     * @param fraction fraction of the pixels, between 0 and 1
+     * @return the smallest threshold, between 0 and 256, with at least <code>fraction</code> of the pixels under it
+     */
+    public int percentileThreshold(double fraction) {
+        assert (0 <= fraction && fraction <= 1);
+        final double target = fraction * total();
+        long under = 0;
+        int threshold = 0;
+        while (under < target && threshold < LEVELS)
+            under += counts[threshold++];
+        return threshold;
+    }
+
+    // ============================================================================================
+    // ======================================== OBJECT ============================================
+    // ============================================================================================
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Histogram that && Arrays.equals(counts, that.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(counts);
+    }
+
+}
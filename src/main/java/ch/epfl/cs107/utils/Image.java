@@ -13,6 +13,9 @@ import static ch.epfl.cs107.Main.*;
 
 /**
  * <b>Task 1.3: </b>Utility class to manipulate ARGB images
+ * <p>
+ * The gray scale and binary conversions of whole images run their pixel loops through a {@link PixelEngine},
+ * vectorized when the Vector API is available.
  *
  * @author Hamza REMMAL (hamza.remmal@epfl.ch)
  * @version 1.0.0
@@ -127,16 +130,18 @@ public final class Image {
         assert (image != null);
 
         int[][] grayImage = new int[image.length][];
-        for (int i = 0; i < image.length; ++i){
+        toGrayRows(image, grayImage, 0, image.length);
+        return grayImage;
+    }
+
+    private static void toGrayRows(int[][] image, int[][] grayImage, int from, int to){
+        for (int i = from; i < to; ++i){
             assert (image[i] != null);
 
             // The inner arrays are initialized on the fly in order not to call `image[0].length` before checking this attribute exists
             grayImage[i] = new int[image[i].length];
-            for (int j = 0; j < image[i].length; ++j)
-                grayImage[i][j] = gray(image[i][j]);
+            PixelEngine.current().toGray(image[i], 0, image[i].length, grayImage[i], 0);
         }
-
-        return grayImage;
     }
 
     /**
@@ -150,15 +155,17 @@ public final class Image {
         assert (image != null);
 
         boolean[][] imageAsBinary = new boolean[image.length][];
-        for (int i = 0; i < image.length; ++i) {
+        toBinaryRows(image, threshold, imageAsBinary, 0, image.length);
+        return imageAsBinary;
+    }
+
+    private static void toBinaryRows(int[][] image, int threshold, boolean[][] imageAsBinary, int from, int to){
+        for (int i = from; i < to; ++i) {
             assert (image[i] != null);
 
             imageAsBinary[i] = new boolean[image[i].length];
-            for (int j = 0; j < image[i].length; ++j)
-                imageAsBinary[i][j] = binary(image[i][j], threshold);
+            PixelEngine.current().toBinary(image[i], 0, image[i].length, threshold, imageAsBinary[i], 0);
         }
-
-        return imageAsBinary;
     }
 
     /**
@@ -171,14 +178,17 @@ public final class Image {
         assert (image != null);
 
         int[][] imageAsARGB = new int[image.length][];
-        for (int i = 0; i < image.length; ++i){
+        fromGrayRows(image, imageAsARGB, 0, image.length);
+        return imageAsARGB;
+    }
+
+    private static void fromGrayRows(int[][] image, int[][] imageAsARGB, int from, int to){
+        for (int i = from; i < to; ++i){
             assert (image[i] != null);
 
             imageAsARGB[i] = new int[image[i].length];
-            for (int j = 0; j < image[i].length; ++j)
-                imageAsARGB[i][j] = argb((byte)0xFF, (byte) image[i][j], (byte) image[i][j], (byte) image[i][j]);
+            PixelEngine.current().fromGray(image[i], 0, image[i].length, imageAsARGB[i], 0);
         }
-        return imageAsARGB;
     }
 
     /**
@@ -190,15 +200,442 @@ public final class Image {
     public static int[][] fromBinary(boolean[][] image){
         assert (image != null);
 
-        int[][] binaryToGray = new int[image.length][];
-        for (int i = 0; i < image.length; ++i){
+        int[][] imageAsARGB = new int[image.length][];
+        fromBinaryRows(image, imageAsARGB, 0, image.length);
+        return imageAsARGB;
+    }
+
+    private static void fromBinaryRows(boolean[][] image, int[][] imageAsARGB, int from, int to){
+        final int white = argb((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+        final int black = argb((byte) 0xFF, (byte) 0, (byte) 0, (byte) 0);
+        for (int i = from; i < to; ++i){
             assert (image[i] != null);
 
-            binaryToGray[i] = new int[image[i].length];
+            imageAsARGB[i] = new int[image[i].length];
             for (int j = 0; j < image[i].length; ++j)
-                binaryToGray[i][j] = (image[i][j]) ? 255 : 0;
+                imageAsARGB[i][j] = (image[i][j]) ? white : black;
+        }
+    }
+
+    // ============================================================================================
+    // ================================ FLAT IMAGE MANIPULATION ===================================
+    // ============================================================================================
+
+    /**
+     * Build the gray scale version of an ARGB image
+     *
+     * @param image image in ARGB format
+     * @return the gray scale version of the image
+     */
+    public static ImageBuffer toGray(ImageBuffer image){
+        assert (image != null);
+
+        ImageBuffer grayImage = new ImageBuffer(image.width(), image.height());
+        toGray(image, grayImage);
+        return grayImage;
+    }
+
+    /**
+     * Write the gray scale version of an ARGB image into a caller supplied image
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image image in ARGB format
+     * @param dst image of the same size receiving the gray scales
+     */
+    public static void toGray(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        toGrayRows(image, dst, 0, image.height());
+    }
+
+    private static void toGrayRows(ImageBuffer image, ImageBuffer dst, int from, int to){
+        final var engine = PixelEngine.current();
+        for (int i = from; i < to; ++i)
+            engine.toGray(image.data(), image.rowStart(i), image.width(), dst.data(), dst.rowStart(i));
+    }
+
+    /**
+     * Build the binary representation of an image from the gray scale version
+     *
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @return binary representation of the image (1 for <code>true</code>, 0 for <code>false</code>)
+     */
+    public static ImageBuffer toBinary(ImageBuffer image, int threshold){
+        assert (image != null);
+
+        ImageBuffer imageAsBinary = new ImageBuffer(image.width(), image.height());
+        toBinary(image, threshold, imageAsBinary);
+        return imageAsBinary;
+    }
+
+    /**
+     * Write the binary representation of a gray scale image into a caller supplied image
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @param dst image of the same size receiving the binary values (1 for <code>true</code>, 0 for <code>false</code>)
+     */
+    public static void toBinary(ImageBuffer image, int threshold, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        toBinaryRows(image, threshold, dst, 0, image.height());
+    }
+
+    private static void toBinaryRows(ImageBuffer image, int threshold, ImageBuffer dst, int from, int to){
+        final var engine = PixelEngine.current();
+        for (int i = from; i < to; ++i)
+            engine.toBinary(image.data(), image.rowStart(i), image.width(), threshold, dst.data(), dst.rowStart(i));
+    }
+
+    /**
+     * Build an ARGB image from the gray-scaled image
+     * @implNote The result of this method will a gray image, not the original image
+     * @param image grayscale image representation
+     * @return <b>gray ARGB</b> representation
+     */
+    public static ImageBuffer fromGray(ImageBuffer image){
+        assert (image != null);
+
+        ImageBuffer imageAsARGB = new ImageBuffer(image.width(), image.height());
+        fromGray(image, imageAsARGB);
+        return imageAsARGB;
+    }
+
+    /**
+     * Write the ARGB version of a gray-scaled image into a caller supplied image
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image grayscale image representation
+     * @param dst image of the same size receiving the <b>gray ARGB</b> representation
+     */
+    public static void fromGray(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        fromGrayRows(image, dst, 0, image.height());
+    }
+
+    private static void fromGrayRows(ImageBuffer image, ImageBuffer dst, int from, int to){
+        final var engine = PixelEngine.current();
+        for (int i = from; i < to; ++i)
+            engine.fromGray(image.data(), image.rowStart(i), image.width(), dst.data(), dst.rowStart(i));
+    }
+
+    /**
+     * Build an ARGB image from the binary image
+     * @implNote The result of this method will return a black and white image, not the original image
+     * @param image binary image representation (1 for <code>true</code>, 0 for <code>false</code>)
+     * @return <b>black and white ARGB</b> representation
+     */
+    public static ImageBuffer fromBinary(ImageBuffer image){
+        assert (image != null);
+
+        ImageBuffer imageAsARGB = new ImageBuffer(image.width(), image.height());
+        fromBinary(image, imageAsARGB);
+        return imageAsARGB;
+    }
+
+    /**
+     * Write the ARGB version of a binary image into a caller supplied image
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image binary image representation (1 for <code>true</code>, 0 for <code>false</code>)
+     * @param dst image of the same size receiving the <b>black and white ARGB</b> representation
+     */
+    public static void fromBinary(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        fromBinaryRows(image, dst, 0, image.height());
+    }
+
+    private static void fromBinaryRows(ImageBuffer image, ImageBuffer dst, int from, int to){
+        final int white = argb((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+        final int black = argb((byte) 0xFF, (byte) 0, (byte) 0, (byte) 0);
+        final int[] src = image.data(), out = dst.data();
+        for (int i = from; i < to; ++i) {
+            final int s = image.rowStart(i), d = dst.rowStart(i);
+            for (int j = 0; j < image.width(); ++j)
+                out[d + j] = src[s + j] != 0 ? white : black;
         }
-        return fromGray(binaryToGray);
+    }
+
+    // ============================================================================================
+    // =============================== PACKED BINARY IMAGES =======================================
+    // ============================================================================================
+
+    /**
+     * Build the packed binary representation of an image from the gray scale version, 64 pixels per word
+     *
+     * @param image Image in gray scale representation, whose rows all have the same length
+     * @param threshold Threshold to consider
+     * @return binary representation of the image
+     */
+    public static BinaryImage toBinaryPacked(int[][] image, int threshold){
+        assert (image != null);
+
+        BinaryImage imageAsBinary = new BinaryImage(widthOf(image), image.length);
+        for (int i = 0; i < image.length; ++i) {
+            assert (image[i] != null && image[i].length == imageAsBinary.width());
+            PixelEngine.current().toBinary(image[i], 0, image[i].length, threshold,
+                                           imageAsBinary.words(), imageAsBinary.rowStart(i));
+        }
+        return imageAsBinary;
+    }
+
+    /**
+     * Build the packed binary representation of an image from the gray scale version, 64 pixels per word
+     *
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @return binary representation of the image
+     */
+    public static BinaryImage toBinaryPacked(ImageBuffer image, int threshold){
+        assert (image != null);
+
+        BinaryImage imageAsBinary = new BinaryImage(image.width(), image.height());
+        toBinary(image, threshold, imageAsBinary);
+        return imageAsBinary;
+    }
+
+    /**
+     * Write the binary representation of a gray scale image into a caller supplied packed image
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @param dst image of the same size receiving the binary values
+     */
+    public static void toBinary(ImageBuffer image, int threshold, BinaryImage dst){
+        assert (image != null && dst != null);
+        assert (image.width() == dst.width() && image.height() == dst.height());
+
+        final var engine = PixelEngine.current();
+        for (int i = 0; i < image.height(); ++i)
+            engine.toBinary(image.data(), image.rowStart(i), image.width(), threshold, dst.words(), dst.rowStart(i));
+    }
+
+    /**
+     * Build an ARGB image from the packed binary image
+     * @param image binary image representation
+     * @return <b>black and white ARGB</b> representation
+     */
+    public static ImageBuffer fromBinary(BinaryImage image){
+        assert (image != null);
+
+        ImageBuffer imageAsARGB = new ImageBuffer(image.width(), image.height());
+        fromBinary(image, imageAsARGB);
+        return imageAsARGB;
+    }
+
+    /**
+     * Write the ARGB version of a packed binary image into a caller supplied image
+     * @param image binary image representation
+     * @param dst image of the same size receiving the <b>black and white ARGB</b> representation
+     */
+    public static void fromBinary(BinaryImage image, ImageBuffer dst){
+        assert (image != null && dst != null);
+        assert (image.width() == dst.width() && image.height() == dst.height());
+
+        final int white = argb((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+        final int black = argb((byte) 0xFF, (byte) 0, (byte) 0, (byte) 0);
+        final var engine = PixelEngine.current();
+        for (int i = 0; i < image.height(); ++i)
+            engine.fromBinary(image.words(), image.rowStart(i), image.width(), white, black, dst.data(), dst.rowStart(i));
+    }
+
+    // ============================================================================================
+    // ====================================== GRAY PLANES =========================================
+    // ============================================================================================
+
+    /**
+     * Build the gray scale version of an ARGB image, one byte per pixel
+     *
+     * @param image image in ARGB format
+     * @return the gray scale version of the image
+     */
+    public static GrayPlane toGrayPlane(ImageBuffer image){
+        assert (image != null);
+
+        GrayPlane grayImage = new GrayPlane(image.width(), image.height());
+        toGray(image, grayImage);
+        return grayImage;
+    }
+
+    /**
+     * Write the gray scale version of an ARGB image into a caller supplied plane
+     * @param image image in ARGB format
+     * @param dst plane of the same size receiving the gray scales
+     */
+    public static void toGray(ImageBuffer image, GrayPlane dst){
+        assert (image != null && dst != null && dst.sameSize(image));
+
+        for (int i = 0; i < image.height(); ++i)
+            PixelEngine.current().toGray(image.data(), image.rowStart(i), image.width(), dst.data(), dst.rowStart(i));
+    }
+
+    /**
+     * Build the packed binary representation of a gray scale plane, 64 pixels per word
+     *
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @return binary representation of the image
+     */
+    public static BinaryImage toBinaryPacked(GrayPlane image, int threshold){
+        assert (image != null);
+
+        BinaryImage imageAsBinary = new BinaryImage(image.width(), image.height());
+        toBinary(image, threshold, imageAsBinary);
+        return imageAsBinary;
+    }
+
+    /**
+     * Write the binary representation of a gray scale plane into a caller supplied packed image
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @param dst image of the same size receiving the binary values
+     */
+    public static void toBinary(GrayPlane image, int threshold, BinaryImage dst){
+        assert (image != null && dst != null);
+        assert (image.width() == dst.width() && image.height() == dst.height());
+
+        for (int i = 0; i < image.height(); ++i)
+            PixelEngine.current().toBinary(image.data(), image.rowStart(i), image.width(), threshold, dst.words(), dst.rowStart(i));
+    }
+
+    /**
+     * Build an ARGB image from a gray scale plane
+     * @param image grayscale image representation
+     * @return <b>gray ARGB</b> representation
+     */
+    public static ImageBuffer fromGray(GrayPlane image){
+        assert (image != null);
+
+        ImageBuffer imageAsARGB = new ImageBuffer(image.width(), image.height());
+        fromGray(image, imageAsARGB);
+        return imageAsARGB;
+    }
+
+    /**
+     * Write the ARGB version of a gray scale plane into a caller supplied image
+     * @param image grayscale image representation
+     * @param dst image of the same size receiving the <b>gray ARGB</b> representation
+     */
+    public static void fromGray(GrayPlane image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+
+        for (int i = 0; i < image.height(); ++i)
+            PixelEngine.current().fromGray(image.data(), image.rowStart(i), image.width(), dst.data(), dst.rowStart(i));
+    }
+
+    // ============================================================================================
+    // ============================== PARALLEL IMAGE MANIPULATION =================================
+    // ============================================================================================
+
+    /**
+     * Build the gray scale version of an ARGB image, the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #toGray(int[][])})
+     *
+     * @param image image in ARGB format
+     * @return the gray scale version of the image
+     */
+    public static int[][] toGrayParallel(int[][] image){
+        assert (image != null);
+
+        int[][] grayImage = new int[image.length][];
+        RowPartition.forEach(image.length, widthOf(image), (from, to) -> toGrayRows(image, grayImage, from, to));
+        return grayImage;
+    }
+
+    /**
+     * Build the binary representation of an image from the gray scale version, the rows being processed
+     * on several threads from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #toBinary(int[][], int)})
+     *
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @return binary representation of the image
+     */
+    public static boolean[][] toBinaryParallel(int[][] image, int threshold){
+        assert (image != null);
+
+        boolean[][] imageAsBinary = new boolean[image.length][];
+        RowPartition.forEach(image.length, widthOf(image), (from, to) -> toBinaryRows(image, threshold, imageAsBinary, from, to));
+        return imageAsBinary;
+    }
+
+    /**
+     * Build an ARGB image from the gray-scaled image, the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #fromGray(int[][])})
+     * @param image grayscale image representation
+     * @return <b>gray ARGB</b> representation
+     */
+    public static int[][] fromGrayParallel(int[][] image){
+        assert (image != null);
+
+        int[][] imageAsARGB = new int[image.length][];
+        RowPartition.forEach(image.length, widthOf(image), (from, to) -> fromGrayRows(image, imageAsARGB, from, to));
+        return imageAsARGB;
+    }
+
+    /**
+     * Build an ARGB image from the binary image, the rows being processed on several threads
+     * from {@link RowPartition#PARALLEL_THRESHOLD} pixels (see {@link #fromBinary(boolean[][])})
+     * @param image binary image representation
+     * @return <b>black and white ARGB</b> representation
+     */
+    public static int[][] fromBinaryParallel(boolean[][] image){
+        assert (image != null);
+
+        int[][] imageAsARGB = new int[image.length][];
+        RowPartition.forEach(image.length, image.length == 0 || image[0] == null ? 0 : image[0].length,
+                             (from, to) -> fromBinaryRows(image, imageAsARGB, from, to));
+        return imageAsARGB;
+    }
+
+    /**
+     * Write the gray scale version of an ARGB image into a caller supplied image, the rows being processed
+     * on several threads from {@link RowPartition#PARALLEL_THRESHOLD} pixels
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image image in ARGB format
+     * @param dst image of the same size receiving the gray scales
+     */
+    public static void toGrayParallel(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> toGrayRows(image, dst, from, to));
+    }
+
+    /**
+     * Write the binary representation of a gray scale image into a caller supplied image, the rows being
+     * processed on several threads from {@link RowPartition#PARALLEL_THRESHOLD} pixels
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image Image in gray scale representation
+     * @param threshold Threshold to consider
+     * @param dst image of the same size receiving the binary values (1 for <code>true</code>, 0 for <code>false</code>)
+     */
+    public static void toBinaryParallel(ImageBuffer image, int threshold, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> toBinaryRows(image, threshold, dst, from, to));
+    }
+
+    /**
+     * Write the ARGB version of a gray-scaled image into a caller supplied image, the rows being processed
+     * on several threads from {@link RowPartition#PARALLEL_THRESHOLD} pixels
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image grayscale image representation
+     * @param dst image of the same size receiving the <b>gray ARGB</b> representation
+     */
+    public static void fromGrayParallel(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> fromGrayRows(image, dst, from, to));
+    }
+
+    /**
+     * Write the ARGB version of a binary image into a caller supplied image, the rows being processed
+     * on several threads from {@link RowPartition#PARALLEL_THRESHOLD} pixels
+     * @implNote <code>dst</code> can be <code>image</code> (in place conversion)
+     * @param image binary image representation (1 for <code>true</code>, 0 for <code>false</code>)
+     * @param dst image of the same size receiving the <b>black and white ARGB</b> representation
+     */
+    public static void fromBinaryParallel(ImageBuffer image, ImageBuffer dst){
+        assert (image != null && image.sameSize(dst));
+        RowPartition.forEach(image.height(), image.width(), (from, to) -> fromBinaryRows(image, dst, from, to));
+    }
+
+    /**
+     * @return the number of columns of the first row of an image, 0 if it has no rows
+     */
+    private static int widthOf(int[][] image) {
+        return image.length == 0 || image[0] == null ? 0 : image[0].length;
     }
 
 }
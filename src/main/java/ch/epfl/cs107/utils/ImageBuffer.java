@@ -0,0 +1,226 @@
+package ch.epfl.cs107.utils;
+
+import java.util.Arrays;
+
+/**
+ * Image stored in a single flat <code>int[]</code>, row after row.
+ * <p>
+ * The pixel <code>(row, col)</code> is at <code>offset + row * stride + col</code> of {@link #data()}: a buffer
+ * owning its array has <code>stride == width</code>, while the {@link #row(int)} and {@link #region(int, int, int, int)}
+ * views share the array of their parent (no copy, the writes are visible in both) with the stride of the parent.
+ * <p>
+ * The values are whatever the operation stores: <b>ARGB</b> pixels, gray scales (0 to 255) or binary values
+ * (1 for <code>true</code>, 0 for <code>false</code>), as the <code>int[][]</code> images of {@link Image}.
+ */
+public final class ImageBuffer {
+
+    private final int[] data;
+    private final int offset;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    /**
+     * Build an image of the given size, all its pixels being 0
+     * @param width number of columns
+     * @param height number of rows
+     */
+    public ImageBuffer(int width, int height) {
+        this(new int[checkedSize(width, height)], 0, width, height, width);
+    }
+
+    private ImageBuffer(int[] data, int offset, int width, int height, int stride) {
+        this.data = data;
+        this.offset = offset;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    /**
+     * View an array as an image, without copying it
+     * @param data pixels, row after row
+     * @param width number of columns
+     * @param height number of rows
+     * @return the image
+     */
+    public static ImageBuffer wrap(int[] data, int width, int height) {
+        return wrap(data, 0, width, height, width);
+    }
+
+    /**
+     * View a part of an array as an image, without copying it
+     * @param data array containing the pixels
+     * @param offset index of the pixel <code>(0, 0)</code> in <code>data</code>
+     * @param width number of columns
+     * @param height number of rows
+     * @param stride distance in <code>data</code> between two pixels of the same column on consecutive rows
+     * @return the image
+     */
+    public static ImageBuffer wrap(int[] data, int offset, int width, int height, int stride) {
+        assert (data != null);
+        assert (width >= 0 && height >= 0 && stride >= width);
+        assert (offset >= 0 && (height == 0 || offset + (long) (height - 1) * stride + width <= data.length));
+        return new ImageBuffer(data, offset, width, height, stride);
+    }
+
+    private static int checkedSize(int width, int height) {
+        assert (width >= 0 && height >= 0);
+        assert ((long) width * height <= Integer.MAX_VALUE);
+        return width * height;
+    }
+
+    // ============================================================================================
+    // ======================================== ADAPTERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Copy a jagged image into a flat one
+     * @param image image whose rows all have the same length
+     * @return a copy of the image
+     */
+    public static ImageBuffer fromArray(int[][] image) {
+        assert (image != null);
+        final int height = image.length;
+        final int width = height == 0 ? 0 : image[0].length;
+        final var buffer = new ImageBuffer(width, height);
+        for (int i = 0; i < height; ++i) {
+            assert (image[i] != null && image[i].length == width);
+            System.arraycopy(image[i], 0, buffer.data, i * width, width);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return a copy of this image as a jagged array
+     */
+    public int[][] toArray() {
+        final var image = new int[height][];
+        for (int i = 0; i < height; ++i) {
+            final int from = rowStart(i);
+            image[i] = Arrays.copyOfRange(data, from, from + width);
+        }
+        return image;
+    }
+
+    /**
+     * @return a copy of this image owning its own array (<code>stride == width</code>)
+     */
+    public ImageBuffer copy() {
+        final var copy = new ImageBuffer(width, height);
+        for (int i = 0; i < height; ++i)
+            System.arraycopy(data, rowStart(i), copy.data, i * width, width);
+        return copy;
+    }
+
+    // ============================================================================================
+    // ========================================= VIEWS ============================================
+    // ============================================================================================
+
+    /**
+     * @param row index of the row
+     * @return a view of a single row of this image
+     */
+    public ImageBuffer row(int row) {
+        return region(row, 0, width, 1);
+    }
+
+    /**
+     * @param row index of the first row of the region
+     * @param col index of the first column of the region
+     * @param width number of columns of the region
+     * @param height number of rows of the region
+     * @return a view of a rectangle of this image
+     */
+    public ImageBuffer region(int row, int col, int width, int height) {
+        assert (0 <= row && 0 <= height && row + height <= this.height);
+        assert (0 <= col && 0 <= width && col + width <= this.width);
+        return new ImageBuffer(data, offset + row * stride + col, width, height, stride);
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESS ============================================
+    // ============================================================================================
+
+    /**
+     * @return the number of columns
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the distance in {@link #data()} between two pixels of the same column on consecutive rows
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return the index of the pixel <code>(0, 0)</code> in {@link #data()}
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @implNote the array is not copied, and may be shared with other views
+     * @return the array containing the pixels
+     */
+    public int[] data() {
+        return data;
+    }
+
+    /**
+     * @param row index of the row
+     * @return the index of the first pixel of the row in {@link #data()}
+     */
+    public int rowStart(int row) {
+        assert (0 <= row && row < height);
+        return offset + row * stride;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @return the index of the pixel <code>(row, col)</code> in {@link #data()}
+     */
+    public int index(int row, int col) {
+        assert (0 <= row && row < height && 0 <= col && col < width);
+        return offset + row * stride + col;
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @return the value of the pixel <code>(row, col)</code>
+     */
+    public int get(int row, int col) {
+        return data[index(row, col)];
+    }
+
+    /**
+     * @param row index of the row
+     * @param col index of the column
+     * @param value new value of the pixel <code>(row, col)</code>
+     */
+    public void set(int row, int col, int value) {
+        data[index(row, col)] = value;
+    }
+
+    /**
+     * @param other another image
+     * @return whether both images have the same size
+     */
+    public boolean sameSize(ImageBuffer other) {
+        return other != null && width == other.width && height == other.height;
+    }
+
+}
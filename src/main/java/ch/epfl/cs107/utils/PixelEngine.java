@@ -0,0 +1,248 @@
+package ch.epfl.cs107.utils;
+
+import ch.epfl.cs107.Helper;
+
+import static ch.epfl.cs107.utils.Image.*;
+
+/**
+ * Pixel kernels shared by the conversions of {@link Image}, working on runs of consecutive pixels.
+ * <p>
+ * The engine is picked once, when the class is loaded, according to the system property
+ * <code>ch.epfl.cs107.image.engine</code>:
+ * <ul>
+ *     <li><code>auto</code> (default): the {@link VectorPixelEngine vector} engine when the
+ *     <code>jdk.incubator.vector</code> module is available (<code>--add-modules jdk.incubator.vector</code>),
+ *     the scalar one otherwise</li>
+ *     <li><code>vector</code>: the vector engine, failing if the module is not available</li>
+ *     <li><code>scalar</code>: the pixel at a time loops</li>
+ * </ul>
+ * All the engines give exactly the same output.
+ */
+abstract class PixelEngine {
+
+    /** Name of the system property used to choose the engine */
+    static final String PROPERTY = "ch.epfl.cs107.image.engine";
+
+    /** Engine used by the whole package */
+    private static final PixelEngine CURRENT = select(System.getProperty(PROPERTY, "auto"));
+
+    PixelEngine(){}
+
+    /**
+     * @return the engine used by the package
+     */
+    static PixelEngine current() {
+        return CURRENT;
+    }
+
+    /**
+     * @return the name of the engine, for diagnostics
+     */
+    abstract String name();
+
+    // ============================================================================================
+    // ======================================== KERNELS ===========================================
+    // ============================================================================================
+
+    /**
+     * <code>dst[dstOff + i] = gray(src[srcOff + i])</code>
+     */
+    abstract void toGray(int[] src, int srcOff, int len, int[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = binary(src[srcOff + i], threshold) ? 1 : 0</code>
+     */
+    abstract void toBinary(int[] src, int srcOff, int len, int threshold, int[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = binary(src[srcOff + i], threshold)</code>
+     */
+    abstract void toBinary(int[] src, int srcOff, int len, int threshold, boolean[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = argb(0xFF, src[srcOff + i], src[srcOff + i], src[srcOff + i])</code>
+     */
+    abstract void fromGray(int[] src, int srcOff, int len, int[] dst, int dstOff);
+
+    /*
+     * The byte kernels read or write the rows of a {@link GrayPlane}, the gray scales being unsigned.
+     */
+
+    /**
+     * <code>dst[dstOff + i] = (byte) gray(src[srcOff + i])</code>
+     */
+    abstract void toGray(int[] src, int srcOff, int len, byte[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = argb(0xFF, src[srcOff + i], src[srcOff + i], src[srcOff + i])</code>
+     */
+    abstract void fromGray(byte[] src, int srcOff, int len, int[] dst, int dstOff);
+
+    /*
+     * The packed kernels read or write the bits of a row of a {@link BinaryImage}: the bit i is the bit
+     * 63 - i % 64 of the word dstOff + i / 64 (srcOff + i / 64), and the bits after len are written as 0.
+     */
+
+    /**
+     * <code>bit i of dst = binary(src[srcOff + i], threshold)</code>
+     */
+    abstract void toBinary(int[] src, int srcOff, int len, int threshold, long[] dst, int dstOff);
+
+    /**
+     * <code>bit i of dst = binary(src[srcOff + i] & 0xFF, threshold)</code>
+     */
+    abstract void toBinary(byte[] src, int srcOff, int len, int threshold, long[] dst, int dstOff);
+
+    /**
+     * <code>bit i of dst = getLSB(src[srcOff + i])</code>
+     */
+    abstract void lowBits(int[] src, int srcOff, int len, long[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = embedInLSB(dst[dstOff + i], bit i of src)</code>
+     */
+    abstract void embedLowBits(long[] src, int srcOff, int len, int[] dst, int dstOff);
+
+    /**
+     * <code>dst[dstOff + i] = bit i of src ? white : black</code>
+     */
+    abstract void fromBinary(long[] src, int srcOff, int len, int white, int black, int[] dst, int dstOff);
+
+    // ============================================================================================
+    // ======================================== SELECTION =========================================
+    // ============================================================================================
+
+    private static PixelEngine select(String name) {
+        return switch (name) {
+            case "scalar" -> new Scalar();
+            case "vector" -> {
+                final var engine = vector();
+                yield (engine == null) ? Helper.fail("The vector engine needs '--add-modules jdk.incubator.vector'") : engine;
+            }
+            case "auto" -> {
+                final var engine = vector();
+                yield (engine == null) ? new Scalar() : engine;
+            }
+            default -> Helper.fail("Unknown pixel engine : '%s'", name);
+        };
+    }
+
+    /**
+     * Load the vector engine reflectively, so this class still links when the incubator module is absent
+     * @return the vector engine, <code>null</code> if not available
+     */
+    private static PixelEngine vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            return (PixelEngine) Class.forName("ch.epfl.cs107.utils.VectorPixelEngine")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= SCALAR ===========================================
+    // ============================================================================================
+
+    /** Pixel at a time loops, used when nothing better is available and for the tails of the vector engine */
+    static class Scalar extends PixelEngine {
+
+        @Override
+        String name() {
+            return "scalar";
+        }
+
+        @Override
+        void toGray(int[] src, int srcOff, int len, int[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = gray(src[srcOff + i]);
+        }
+
+        @Override
+        void toBinary(int[] src, int srcOff, int len, int threshold, int[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = binary(src[srcOff + i], threshold) ? 1 : 0;
+        }
+
+        @Override
+        void toBinary(int[] src, int srcOff, int len, int threshold, boolean[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = binary(src[srcOff + i], threshold);
+        }
+
+        @Override
+        void fromGray(int[] src, int srcOff, int len, int[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = argb((byte) 0xFF, (byte) src[srcOff + i], (byte) src[srcOff + i], (byte) src[srcOff + i]);
+        }
+
+        @Override
+        void toGray(int[] src, int srcOff, int len, byte[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = (byte) gray(src[srcOff + i]);
+        }
+
+        @Override
+        void fromGray(byte[] src, int srcOff, int len, int[] dst, int dstOff) {
+            for (int i = 0; i < len; ++i)
+                dst[dstOff + i] = argb((byte) 0xFF, src[srcOff + i], src[srcOff + i], src[srcOff + i]);
+        }
+
+        @Override
+        void toBinary(byte[] src, int srcOff, int len, int threshold, long[] dst, int dstOff) {
+            for (int i = 0; i < len; i += Long.SIZE) {
+                final int count = Math.min(Long.SIZE, len - i);
+                long word = 0;
+                for (int b = 0; b < count; ++b)
+                    word = word << 1 | (binary(Byte.toUnsignedInt(src[srcOff + i + b]), threshold) ? 1 : 0);
+                dst[dstOff + i / Long.SIZE] = word << (Long.SIZE - count);
+            }
+        }
+
+        @Override
+        void toBinary(int[] src, int srcOff, int len, int threshold, long[] dst, int dstOff) {
+            for (int i = 0; i < len; i += Long.SIZE) {
+                final int count = Math.min(Long.SIZE, len - i);
+                long word = 0;
+                for (int b = 0; b < count; ++b)
+                    word = word << 1 | (binary(src[srcOff + i + b], threshold) ? 1 : 0);
+                dst[dstOff + i / Long.SIZE] = word << (Long.SIZE - count);
+            }
+        }
+
+        @Override
+        void lowBits(int[] src, int srcOff, int len, long[] dst, int dstOff) {
+            for (int i = 0; i < len; i += Long.SIZE) {
+                final int count = Math.min(Long.SIZE, len - i);
+                long word = 0;
+                for (int b = 0; b < count; ++b)
+                    word = word << 1 | (src[srcOff + i + b] & 0b1);
+                dst[dstOff + i / Long.SIZE] = word << (Long.SIZE - count);
+            }
+        }
+
+        @Override
+        void embedLowBits(long[] src, int srcOff, int len, int[] dst, int dstOff) {
+            for (int i = 0; i < len; i += Long.SIZE) {
+                final int count = Math.min(Long.SIZE, len - i);
+                final long word = src[srcOff + i / Long.SIZE];
+                for (int b = 0; b < count; ++b)
+                    dst[dstOff + i + b] = (dst[dstOff + i + b] & ~0b1) | (int) (word >>> (Long.SIZE - 1 - b) & 0b1);
+            }
+        }
+
+        @Override
+        void fromBinary(long[] src, int srcOff, int len, int white, int black, int[] dst, int dstOff) {
+            for (int i = 0; i < len; i += Long.SIZE) {
+                final int count = Math.min(Long.SIZE, len - i);
+                final long word = src[srcOff + i / Long.SIZE];
+                for (int b = 0; b < count; ++b)
+                    dst[dstOff + i + b] = (word << b) < 0 ? white : black;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package ch.epfl.cs107.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join processing of the rows of an image.
+ * <p>
+ * The rows of an image are independent for all the per pixel transforms: the rows are split in halves
+ * until a part has less than {@link #LEAF_PIXELS} pixels, and every part is processed by a task.
+ * The tasks run in the {@link ForkJoinPool} of the calling thread, so the pool is chosen by calling from it
+ * (<code>pool.submit(() -> Image.toGrayParallel(image)).join()</code>), the common pool being used otherwise.
+ */
+public final class RowPartition {
+
+    private RowPartition(){}
+
+    /**
+     * Number of pixels from which the images are processed on several threads.
+     * Can be tuned with the <code>ch.epfl.cs107.image.threshold</code> system property.
+     */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("ch.epfl.cs107.image.threshold", 1 << 18);
+
+    /** Number of pixels under which a part of the image is processed by the current thread */
+    static final int LEAF_PIXELS = 1 << 15;
+
+    /**
+     * Processing of a range of rows
+     */
+    @FunctionalInterface
+    public interface Rows {
+        /**
+         * @param from first row to process
+         * @param to row after the last one to process
+         */
+        void process(int from, int to);
+    }
+
+    /**
+     * Process all the rows of an image, on several threads from {@link #PARALLEL_THRESHOLD} pixels
+     * @param height number of rows
+     * @param width number of pixels of a row
+     * @param rows processing of a range of rows, called concurrently on disjoint ranges
+     */
+    public static void forEach(int height, int width, Rows rows) {
+        forEach(height, width, rows, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Process all the rows of an image
+     * @param height number of rows
+     * @param width number of pixels of a row
+     * @param rows processing of a range of rows, called concurrently on disjoint ranges
+     * @param threshold number of pixels under which the image is processed sequentially
+     */
+    public static void forEach(int height, int width, Rows rows, int threshold) {
+        assert (height >= 0 && width >= 0);
+        assert (rows != null);
+        assert (threshold >= 0);
+        if ((long) height * width < threshold || height < 2)
+            rows.process(0, height);
+        else
+            new RowTask(rows, Math.max(1, LEAF_PIXELS / Math.max(1, width)), 0, height).invoke();
+    }
+
+    private static final class RowTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Rows rows;
+        /** Number of rows under which the range is processed by the current thread */
+        private final int leafRows;
+        private final int from;
+        private final int to;
+
+        private RowTask(Rows rows, int leafRows, int from, int to) {
+            this.rows = rows;
+            this.leafRows = leafRows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafRows) {
+                rows.process(from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(rows, leafRows, from, mid), new RowTask(rows, leafRows, mid, to));
+        }
+    }
+
+}
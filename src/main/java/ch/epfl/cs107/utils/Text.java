@@ -50,6 +50,16 @@ public final class Text {
         return Bit.toBitArray(toBytes(str));
     }
 
+    /**
+     * Convert a given String into a packed bit representation
+     * @param str String to convert
+     * @return <b>UTF-8</b> representation of the string in the <b>bit vector</b> format
+     */
+    public static BitVector toBitVector(String str) {
+        assert (str != null);
+        return Bit.toBitVector(toBytes(str));
+    }
+
     /**
      * Convert a given <b>byte[]</b> into a <b>String</b> following the <b>UTF-8</b> convention
      * @param bytes String in the byte array format
@@ -68,4 +78,14 @@ public final class Text {
         assert (bitArray != null);
         return toString(Bit.toBytes(bitArray));
     }
+
+    /**
+     * Convert a given bit vector to a String
+     * @param bitVector <b>UTF-8</b> compatible bit vector
+     * @return <b>UTF-8 String</b> representation of the bit vector
+     */
+    public static String toString(BitVector bitVector) {
+        assert (bitVector != null);
+        return toString(Bit.toBytes(bitVector));
+    }
 }
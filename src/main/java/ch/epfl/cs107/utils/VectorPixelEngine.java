@@ -0,0 +1,86 @@
+package ch.epfl.cs107.utils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelEngine} processing {@link #SPECIES} pixels per instruction with the Vector API.
+ * <p>
+ * Only loaded (reflectively) when the <code>jdk.incubator.vector</code> module is available.
+ * The tails shorter than a vector go through the scalar loops, as well as the packed kernels of {@link BinaryImage}:
+ * converting masks to and from words (<code>VectorMask.toLong</code>/<code>fromLong</code>) is slower than the shifts.
+ * The byte kernels of {@link GrayPlane} stay scalar too: narrowing to a byte vector of as many lanes
+ * needs a shape the platform may not have (a 16 lanes int vector would need 128 bits of bytes on AVX-512 only).
+ */
+final class VectorPixelEngine extends PixelEngine.Scalar {
+
+    /** Widest int vector supported by the platform (4 to 16 lanes) */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * <code>(x * DIV3) >>> 17 == x / 3</code> for all <code>0 <= x < 98304</code>, so for all the sums of
+     * three channels (at most 765): the division by 3 of {@link Image#gray(int)}, without a vector division
+     */
+    private static final int DIV3 = 0xAAAB;
+
+    private static final int OPAQUE = 0xFF000000;
+
+    @Override
+    String name() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    void toGray(int[] src, int srcOff, int len, int[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final var pixels = IntVector.fromArray(SPECIES, src, srcOff + i);
+            pixels.lanewise(VectorOperators.LSHR, 16).and(0xFF)
+                    .add(pixels.lanewise(VectorOperators.LSHR, 8).and(0xFF))
+                    .add(pixels.and(0xFF))
+                    .mul(DIV3)
+                    .lanewise(VectorOperators.LSHR, 17)
+                    .intoArray(dst, dstOff + i);
+        }
+        super.toGray(src, srcOff + i, len - i, dst, dstOff + i);
+    }
+
+    @Override
+    void toBinary(int[] src, int srcOff, int len, int threshold, int[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        final var zeros = IntVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            zeros.blend(1, IntVector.fromArray(SPECIES, src, srcOff + i).compare(VectorOperators.GE, threshold))
+                    .intoArray(dst, dstOff + i);
+        super.toBinary(src, srcOff + i, len - i, threshold, dst, dstOff + i);
+    }
+
+    @Override
+    void toBinary(int[] src, int srcOff, int len, int threshold, boolean[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            IntVector.fromArray(SPECIES, src, srcOff + i)
+                    .compare(VectorOperators.GE, threshold)
+                    .intoArray(dst, dstOff + i);
+        super.toBinary(src, srcOff + i, len - i, threshold, dst, dstOff + i);
+    }
+
+    @Override
+    void fromGray(int[] src, int srcOff, int len, int[] dst, int dstOff) {
+        final int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            //↓ The gray scale copied in the three channels at once
+            IntVector.fromArray(SPECIES, src, srcOff + i)
+                    .and(0xFF)
+                    .mul(0x010101)
+                    .or(OPAQUE)
+                    .intoArray(dst, dstOff + i);
+        super.fromGray(src, srcOff + i, len - i, dst, dstOff + i);
+    }
+
+}